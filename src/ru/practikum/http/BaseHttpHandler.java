@@ -0,0 +1,197 @@
+package ru.practikum.http;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Общая часть обработчиков HTTP API: разбор пути, отправка JSON и преобразование исключений менеджера
+ * в коды ответа.
+ * <p>
+ * Коды ответа:
+ * <ul>
+ *     <li>400 — некорректный JSON или идентификатор в пути;</li>
+ *     <li>404 — задача или путь не найдены ({@link IllegalArgumentException} менеджера);</li>
+ *     <li>405 — метод не поддерживается путём;</li>
+ *     <li>503 — хранилище отклонило изменение ({@link IllegalStateException}, например при переполнении очереди
+ *     {@link ru.practikum.storage.WriteBehindStorage});</li>
+ *     <li>500 — прочие ошибки.</li>
+ * </ul>
+ * Тело ответа с ошибкой — {@code {"error": "<сообщение>"}}.
+ * <p>
+ * Ответы с задачами помечаются заголовком {@code ETag} по версии задачи или списка
+ * ({@link ru.practikum.manager.TaskManager#getVersion(String)}). Если {@code If-None-Match} запроса совпадает
+ * с текущим ETag, возвращается 304 без тела и без сериализации. ETag содержит случайную метку обработчика,
+ * поэтому после перезапуска сервера, когда версии начинаются заново, старые ETag не совпадают.
+ */
+public abstract class BaseHttpHandler implements HttpHandler {
+
+    protected static final JsonFactory JSON = new JsonFactory();
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    /**
+     * Запись JSON-ответа в генератор.
+     */
+    @FunctionalInterface
+    protected interface JsonBody {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Запрос с некорректным путём, параметром или телом.
+     */
+    protected static class BadRequestException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public BadRequestException(String message) {
+            super(message);
+        }
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                String[] path = segments(exchange);
+                if (!exchange.getHttpContext().getPath().equals("/" + path[0])) {
+                    sendNotFound(exchange);
+                    return;
+                }
+                handleRequest(exchange, path);
+            } catch (BadRequestException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 404, e.getMessage());
+            } catch (IllegalStateException e) {
+                sendError(exchange, 503, e.getMessage());
+            } catch (RuntimeException e) {
+                sendError(exchange, 500, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Обрабатывает запрос.
+     *
+     * @param exchange запрос и ответ
+     * @param path     непустые части пути, первая — имя ресурса, например {@code ["tasks", "5"]}
+     */
+    protected abstract void handleRequest(HttpExchange exchange, String[] path) throws IOException;
+
+    private static String[] segments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        return path.replaceAll("^/+|/+$", "").split("/+");
+    }
+
+    /**
+     * Разбирает идентификатор задачи из части пути.
+     *
+     * @throws BadRequestException если часть пути не является числом
+     */
+    protected static int parseId(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Некорректный идентификатор: " + segment);
+        }
+    }
+
+    /**
+     * Возвращает значение параметра запроса или {@code null}, если параметра нет.
+     */
+    protected static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            String key = separator < 0 ? parameter : parameter.substring(0, separator);
+            if (key.equals(name)) {
+                return separator < 0 ? "" : parameter.substring(separator + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Сериализует ответ в память и отправляет его с длиной тела, чтобы соединение могло быть переиспользовано.
+     */
+    protected static void sendJson(HttpExchange exchange, int code, JsonBody body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = JSON.createGenerator(buffer, JsonEncoding.UTF8)) {
+            body.write(generator);
+        }
+        sendBytes(exchange, code, buffer.toByteArray());
+    }
+
+    protected static void sendBytes(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Возвращает ETag для версии задачи или списка задач.
+     */
+    protected String etag(long version) {
+        return "\"" + epoch + "-" + Long.toHexString(version) + "\"";
+    }
+
+    /**
+     * Отвечает 304, если {@code If-None-Match} запроса содержит указанный ETag или {@code *}.
+     *
+     * @return {@code true}, если ответ 304 отправлен
+     */
+    protected static boolean sendNotModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals("*")) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected static void sendNoContent(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    protected static void sendNotFound(HttpExchange exchange) throws IOException {
+        sendError(exchange, 404, "Путь не найден: " + exchange.getRequestURI().getPath());
+    }
+
+    protected static void sendMethodNotAllowed(HttpExchange exchange) throws IOException {
+        sendError(exchange, 405, "Метод не поддерживается: " + exchange.getRequestMethod());
+    }
+
+    protected static void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        sendJson(exchange, code, generator -> {
+            generator.writeStartObject();
+            generator.writeStringField("error", message);
+            generator.writeEndObject();
+        });
+    }
+}
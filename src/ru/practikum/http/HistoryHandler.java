@@ -0,0 +1,46 @@
+package ru.practikum.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.storage.JsonSnapshotFormat;
+import ru.practikum.task.Task;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Обработчик истории просмотров:
+ * <pre>
+ * GET /history    история от самого давнего просмотра к последнему: {"&lt;id&gt;_&lt;тип&gt;": задача, ...}
+ * </pre>
+ * Ключи совпадают с ключами {@link TaskManager#getHistory()}.
+ */
+public class HistoryHandler extends BaseHttpHandler {
+
+    private final TaskManager manager;
+
+    public HistoryHandler(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    protected void handleRequest(HttpExchange exchange, String[] path) throws IOException {
+        if (path.length != 1) {
+            sendNotFound(exchange);
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendMethodNotAllowed(exchange);
+            return;
+        }
+        Map<String, Task> history = manager.getHistory();
+        sendJson(exchange, 200, generator -> {
+            generator.writeStartObject();
+            for (Map.Entry<String, Task> entry : history.entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                JsonSnapshotFormat.writeIssue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practikum.http;
+
+import com.sun.net.httpserver.HttpServer;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Epic;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+import ru.practikum.utils.Managers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP API менеджера задач на {@link HttpServer} из JDK. Каждый запрос обрабатывается в своём
+ * виртуальном потоке, поэтому ожидание блокировок менеджера и записи на диск не занимает потоки платформы.
+ * <p>
+ * Пути: {@code /tasks}, {@code /epics}, {@code /subtasks} (см. {@link IssueHandler}) и {@code /history}
+ * (см. {@link HistoryHandler}). Запросы выполняются параллельно, поэтому менеджер должен быть потокобезопасным:
+ * {@link ru.practikum.manager.ConcurrentTaskManager} или {@link ru.practikum.manager.FileBackedTaskManager}.
+ * Блокировки {@code synchronized} в {@link ru.practikum.manager.FileBackedTaskManager} на JDK 21 удерживают
+ * поток платформы на время записи; {@link ru.practikum.manager.ConcurrentTaskManager} построен на
+ * {@link java.util.concurrent.locks.ReentrantReadWriteLock} и этого ограничения не имеет.
+ */
+public class HttpTaskServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    static {
+        // без TCP_NODELAY заголовки и тело ответа уходят разными сегментами, и второй ждёт отложенного
+        // подтверждения клиента (~40 мс на запрос); настройка читается при первом создании HttpServer в JVM
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public HttpTaskServer(TaskManager manager) throws IOException {
+        this(manager, DEFAULT_PORT);
+    }
+
+    /**
+     * @param manager потокобезопасный менеджер задач
+     * @param port    порт или 0, чтобы выбрать свободный
+     * @throws IOException если порт не удалось занять
+     */
+    public HttpTaskServer(TaskManager manager, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/tasks", new IssueHandler(manager, "Task", Task.class));
+        server.createContext("/epics", new IssueHandler(manager, "Epic", Epic.class));
+        server.createContext("/subtasks", new IssueHandler(manager, "Subtask", Subtask.class));
+        server.createContext("/history", new HistoryHandler(manager));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Перестаёт принимать соединения и дожидается обработки начатых запросов.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        HttpTaskServer server = new HttpTaskServer(Managers.getConcurrentTaskManager(), port);
+        server.start();
+        System.out.println("HTTP API менеджера задач запущен на порту " + server.getPort());
+    }
+}
@@ -0,0 +1,190 @@
+package ru.practikum.http;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.storage.JsonSnapshotFormat;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Обработчик задач одного типа. Задачи передаются в формате {@link JsonSnapshotFormat#writeIssue}.
+ * <pre>
+ * GET    /tasks                     список задач; параметры offset и limit задают страницу
+ * GET    /tasks/{id}                задача (записывается в историю просмотров)
+ * POST   /tasks                     тело без id — добавление (201), с id — обновление (200)
+ * POST   /tasks/{id}                обновление задачи (200)
+ * DELETE /tasks                     удаление всех задач типа (204)
+ * DELETE /tasks/{id}                удаление задачи (204)
+ * GET    /epics/{id}/subtasks       подзадачи эпика
+ * </pre>
+ * Для эпиков и подзадач пути те же с {@code /epics} и {@code /subtasks}.
+ * <p>
+ * ETag задачи — её версия, ETag списка и подзадач эпика — версия списка задач типа. Сериализованный полный
+ * список хранится вместе с версией, по которой он построен, и отдаётся повторно, пока версия списка не изменится.
+ * Версия читается до списка, поэтому закешированное тело не старше своей версии.
+ */
+public class IssueHandler extends BaseHttpHandler {
+
+    private final TaskManager manager;
+    private final String issueType;
+    private final Class<? extends Task> type;
+
+    /**
+     * Сериализованный полный список задач и версия списка, прочитанная до него.
+     */
+    private record CachedList(long version, byte[] body) {
+    }
+
+    private volatile CachedList cachedList;
+
+    /**
+     * @param manager   потокобезопасный менеджер задач
+     * @param issueType тип задач ("Task", "Subtask", "Epic")
+     * @param type      класс задач
+     */
+    public IssueHandler(TaskManager manager, String issueType, Class<? extends Task> type) {
+        this.manager = manager;
+        this.issueType = issueType;
+        this.type = type;
+    }
+
+    @Override
+    protected void handleRequest(HttpExchange exchange, String[] path) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (path.length == 1) {
+            switch (method) {
+                case "GET" -> sendList(exchange);
+                case "POST" -> save(exchange, 0);
+                case "DELETE" -> {
+                    manager.clearIssuesList(issueType);
+                    sendNoContent(exchange);
+                }
+                default -> sendMethodNotAllowed(exchange);
+            }
+        } else if (path.length == 2) {
+            int id = parseId(path[1]);
+            switch (method) {
+                case "GET" -> {
+                    Task issue = manager.getIssueById(id, issueType);
+                    String etag = etag(issue.getVersion());
+                    if (!sendNotModified(exchange, etag)) {
+                        sendIssue(exchange, 200, issue, etag);
+                    }
+                }
+                case "POST" -> save(exchange, id);
+                case "DELETE" -> {
+                    manager.removeIssueById(id, issueType);
+                    sendNoContent(exchange);
+                }
+                default -> sendMethodNotAllowed(exchange);
+            }
+        } else if (path.length == 3 && issueType.equals("Epic") && path[2].equals("subtasks")) {
+            if (!method.equals("GET")) {
+                sendMethodNotAllowed(exchange);
+                return;
+            }
+            String etag = etag(manager.getVersion("Subtask"));
+            List<Subtask> subtasks = manager.getEpicSubtasks(parseId(path[1]), null);
+            if (!sendNotModified(exchange, etag)) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                sendIssues(exchange, subtasks);
+            }
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
+    /**
+     * Отправляет список задач или его страницу. Полный список берётся из кеша, если версия не изменилась.
+     */
+    private void sendList(HttpExchange exchange) throws IOException {
+        String offset = queryParameter(exchange, "offset");
+        String limit = queryParameter(exchange, "limit");
+        long version = manager.getVersion(issueType);
+        String etag = etag(version);
+        if (sendNotModified(exchange, etag)) {
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (offset != null || limit != null) {
+            sendIssues(exchange, manager.getIssuesList(issueType, type,
+                    offset == null ? 0 : parseParameter("offset", offset),
+                    limit == null ? Integer.MAX_VALUE : parseParameter("limit", limit)));
+            return;
+        }
+        CachedList cached = cachedList;
+        if (cached == null || cached.version() != version) {
+            cached = new CachedList(version, serialize(manager.getIssuesList(issueType, type)));
+            cachedList = cached;
+        }
+        sendBytes(exchange, 200, cached.body());
+    }
+
+    private static int parseParameter(String name, String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new BadRequestException("Параметр " + name + " не может быть отрицательным");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Некорректное значение параметра " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Добавляет задачу из тела запроса или обновляет задачу с идентификатором из пути или тела.
+     */
+    private void save(HttpExchange exchange, int pathId) throws IOException {
+        Task issue = readIssue(exchange);
+        int id = pathId != 0 ? pathId : issue.getId();
+        if (id == 0) {
+            manager.addIssue(issue);
+            sendIssue(exchange, 201, issue, etag(issue.getVersion()));
+        } else {
+            Task updated = manager.updateIssue(id, issue);
+            sendIssue(exchange, 200, updated, etag(updated.getVersion()));
+        }
+    }
+
+    private Task readIssue(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody(); JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new BadRequestException("Ожидался JSON-объект задачи");
+            }
+            return JsonSnapshotFormat.readIssue(parser, issueType);
+        } catch (IOException e) {
+            throw new BadRequestException("Некорректная задача: " + e.getMessage());
+        }
+    }
+
+    private static void sendIssue(HttpExchange exchange, int code, Task issue, String etag) throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        sendJson(exchange, code, generator -> JsonSnapshotFormat.writeIssue(generator, issue));
+    }
+
+    private static void sendIssues(HttpExchange exchange, List<? extends Task> issues) throws IOException {
+        sendBytes(exchange, 200, serialize(issues));
+    }
+
+    private static byte[] serialize(List<? extends Task> issues) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(issues.size() * 96 + 2);
+        try (JsonGenerator generator = JSON.createGenerator(buffer, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (Task issue : issues) {
+                JsonSnapshotFormat.writeIssue(generator, issue);
+            }
+            generator.writeEndArray();
+        }
+        return buffer.toByteArray();
+    }
+}
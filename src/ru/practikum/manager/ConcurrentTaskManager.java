@@ -0,0 +1,274 @@
+/**
+ * Потокобезопасная реализация {@link TaskManager} поверх {@link InMemoryTaskManager}.
+ * <p>
+ * Блокировки разделены по типам задач: у Task, Epic и Subtask свои {@link ReentrantReadWriteLock}.
+ * Операции над обычными задачами не мешают операциям над эпиками и подзадачами.
+ * Изменение эпика или подзадачи берёт блокировки на запись и эпиков, и подзадач
+ * (всегда в порядке Task → Epic → Subtask, чтобы исключить взаимоблокировки), поэтому
+ * связь эпика с подзадачами и статус эпика всегда согласованы для читателей.
+ * Чтение берёт блокировку на чтение только своего типа, читатели одного типа не мешают друг другу.
+ */
+package ru.practikum.manager;
+
+import ru.practikum.task.Status;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+import ru.practikum.utils.Managers;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class ConcurrentTaskManager implements TaskManager {
+
+    private static final List<String> ISSUE_TYPES = List.of("Task", "Epic", "Subtask");
+
+    /**
+     * Менеджер задач, к которому делегируются операции под блокировками.
+     * История просмотров изменяется и при чтении, поэтому она обёрнута в {@link SynchronizedHistoryManager}.
+     */
+    private final InMemoryTaskManager<Task> manager;
+
+    /**
+     * Блокировки по типам задач.
+     */
+    private final Map<String, ReadWriteLock> locks = new HashMap<>();
+
+    /**
+     * Блокировки, которые берут изменяющие и читающие операции над задачами каждого типа,
+     * в порядке захвата.
+     */
+    private final Map<String, List<Lock>> writeLocks = new HashMap<>();
+    private final Map<String, List<Lock>> readLocks = new HashMap<>();
+    private final List<Lock> allReadLocks = new ArrayList<>();
+
+    public ConcurrentTaskManager() {
+        manager = new InMemoryTaskManager<>(new SynchronizedHistoryManager(Managers.getDefaultHistory()));
+        ISSUE_TYPES.forEach(issueType -> locks.put(issueType, new ReentrantReadWriteLock()));
+        ISSUE_TYPES.forEach(issueType -> allReadLocks.add(locks.get(issueType).readLock()));
+        writeLocks.put("Task", List.of(locks.get("Task").writeLock()));
+        writeLocks.put("Epic", List.of(locks.get("Epic").writeLock(), locks.get("Subtask").writeLock()));
+        writeLocks.put("Subtask", writeLocks.get("Epic"));
+        ISSUE_TYPES.forEach(issueType -> readLocks.put(issueType, List.of(locks.get(issueType).readLock())));
+    }
+
+    /**
+     * Возвращает блокировки, которые нужно взять для операции над задачами указанного типа.
+     * Для неизвестного типа берутся блокировки всех типов.
+     *
+     * @param issueType тип задачи ("Task", "Subtask", "Epic")
+     * @param write     {@code true} для изменяющей операции
+     */
+    private List<Lock> locksFor(String issueType, boolean write) {
+        List<Lock> issueLocks = write ? writeLocks.get(issueType) : readLocks.get(issueType);
+        if (issueLocks == null) {
+            List<Lock> all = new ArrayList<>(ISSUE_TYPES.size());
+            ISSUE_TYPES.forEach(type -> all.add(write ? locks.get(type).writeLock() : locks.get(type).readLock()));
+            return all;
+        }
+        return issueLocks;
+    }
+
+    private <R> R withLocks(List<Lock> issueLocks, Supplier<R> action) {
+        int locked = 0;
+        try {
+            for (Lock lock : issueLocks) {
+                lock.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                issueLocks.get(i).unlock();
+            }
+        }
+    }
+
+    private <R> R write(String issueType, Supplier<R> action) {
+        return withLocks(locksFor(issueType, true), action);
+    }
+
+    private <R> R read(String issueType, Supplier<R> action) {
+        return withLocks(locksFor(issueType, false), action);
+    }
+
+    private <R> R readAll(Supplier<R> action) {
+        return withLocks(allReadLocks, action);
+    }
+
+    @Override
+    public <T extends Task> int addIssue(T issue) {
+        return write(issue.getClass().getSimpleName(), () -> manager.addIssue(issue));
+    }
+
+    @Override
+    public <T extends Task> T updateIssue(int id, T issue) {
+        return write(issue.getClass().getSimpleName(), () -> manager.updateIssue(id, issue));
+    }
+
+    /**
+     * Добавляет задачи под блокировками их типа или, если типы разные, под блокировками всех типов.
+     */
+    @Override
+    public <T extends Task> List<Integer> addIssues(Collection<T> issues) {
+        return write(commonType(issues), () -> manager.addIssues(issues));
+    }
+
+    /**
+     * Обновляет задачи под блокировками их типа или, если типы разные, под блокировками всех типов.
+     */
+    @Override
+    public <T extends Task> List<T> updateIssues(Map<Integer, T> issues) {
+        return write(commonType(issues.values()), () -> manager.updateIssues(issues));
+    }
+
+    @Override
+    public void removeIssues(String issueType, Collection<Integer> ids) {
+        write(issueType, () -> {
+            manager.removeIssues(issueType, ids);
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет транзакцию под блокировками всех типов на запись: читатели не видят её промежуточного
+     * состояния и изменений, отменённых откатом. Блок получает этот менеджер.
+     */
+    @Override
+    public void transaction(Consumer<TaskManager> work) {
+        write(null, () -> {
+            manager.transaction(tx -> work.accept(this));
+            return null;
+        });
+    }
+
+    /**
+     * Возвращает общий тип задач или null, если типы разные.
+     */
+    private static String commonType(Collection<? extends Task> issues) {
+        String issueType = null;
+        for (Task issue : issues) {
+            String type = issue.getClass().getSimpleName();
+            if (issueType == null) {
+                issueType = type;
+            } else if (!issueType.equals(type)) {
+                return null;
+            }
+        }
+        return issueType;
+    }
+
+    @Override
+    public <T extends Task> List<T> getIssuesList(String issueType, Class<T> type) {
+        return read(issueType, () -> manager.getIssuesList(issueType, type));
+    }
+
+    @Override
+    public <T extends Task> List<T> getIssuesList(String issueType, Class<T> type, int offset, int limit) {
+        return read(issueType, () -> manager.getIssuesList(issueType, type, offset, limit));
+    }
+
+    /**
+     * Возвращает ленивый поток задач. Поток создаётся под блокировкой на чтение, а обходится без неё:
+     * он видит задачи, существовавшие в момент создания, и не выбрасывает ошибок при параллельных изменениях.
+     */
+    @Override
+    public <T extends Task> Stream<T> streamIssues(String issueType, Class<T> type) {
+        return read(issueType, () -> manager.streamIssues(issueType, type));
+    }
+
+    @Override
+    public void clearIssuesList(String issueType) {
+        write(issueType, () -> {
+            manager.clearIssuesList(issueType);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends Task> T getIssueById(int id, String issueType) {
+        return read(issueType, () -> manager.getIssueById(id, issueType));
+    }
+
+    @Override
+    public void printIssues(String issueType) {
+        read(issueType, () -> {
+            manager.printIssues(issueType);
+            return null;
+        });
+    }
+
+    @Override
+    public void printAllIssues() {
+        readAll(() -> {
+            manager.printAllIssues();
+            return null;
+        });
+    }
+
+    @Override
+    public void removeIssueById(int id, String issueType) {
+        write(issueType, () -> {
+            manager.removeIssueById(id, issueType);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends Task> Map<String, T> getHistory() {
+        return manager.getHistory();
+    }
+
+    @Override
+    public <T extends Task> List<T> getIssuesByStatus(String issueType, Status status, Class<T> type) {
+        return read(issueType, () -> manager.getIssuesByStatus(issueType, status, type));
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId, Status status) {
+        return withLocks(allReadLocks, () -> manager.getEpicSubtasks(epicId, status));
+    }
+
+    @Override
+    public List<Task> search(String query) {
+        return readAll(() -> manager.search(query));
+    }
+
+    /**
+     * Возвращает согласованный снимок всех задач, разбитый по типам.
+     *
+     * @return копия хранилища: тип задачи -> (идентификатор -> задача)
+     */
+    @Override
+    public Map<String, Map<Integer, Task>> getTasksList() {
+        return readAll(() -> {
+            Map<String, Map<Integer, Task>> snapshot = new LinkedHashMap<>();
+            manager.getTasksList().forEach((issueType, issues) -> snapshot.put(issueType, new LinkedHashMap<>(issues)));
+            return snapshot;
+        });
+    }
+
+    /**
+     * Возвращает версию списка задач без блокировки: версия хранится в атомарном счётчике и увеличивается
+     * изменяющей операцией до того, как она освобождает блокировки, поэтому прочитанный затем список
+     * не старше прочитанной версии.
+     */
+    @Override
+    public long getVersion(String issueType) {
+        return manager.getVersion(issueType);
+    }
+
+    /**
+     * Включает сверку статусов эпиков с полным пересчётом, см. {@link InMemoryTaskManager#setEpicStatusVerification}.
+     */
+    public void setEpicStatusVerification(boolean epicStatusVerification) {
+        write("Epic", () -> {
+            manager.setEpicStatusVerification(epicStatusVerification);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practikum.manager;
+
+import ru.practikum.task.Status;
+import ru.practikum.utils.IntArraySet;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Индекс подзадач одного эпика по статусам.
+ * <p>
+ * Изменяется при каждом добавлении, удалении или смене статуса подзадачи,
+ * поэтому и выборка подзадач эпика с заданным статусом, и статус самого эпика
+ * получаются за O(1) без обхода всех его подзадач.
+ */
+class EpicSubtaskIndex {
+
+    private final Map<Status, IntArraySet> subtasks = new EnumMap<>(Status.class);
+    private int total;
+
+    EpicSubtaskIndex() {
+        for (Status status : Status.values()) {
+            subtasks.put(status, new IntArraySet());
+        }
+    }
+
+    void add(int subtaskId, Status status) {
+        subtasks.get(status).addInt(subtaskId);
+        total++;
+    }
+
+    void remove(int subtaskId, Status status) {
+        subtasks.get(status).removeInt(subtaskId);
+        total--;
+    }
+
+    void change(int subtaskId, Status oldStatus, Status newStatus) {
+        subtasks.get(oldStatus).removeInt(subtaskId);
+        subtasks.get(newStatus).addInt(subtaskId);
+    }
+
+    void clear() {
+        subtasks.values().forEach(IntArraySet::clear);
+        total = 0;
+    }
+
+    /**
+     * Возвращает идентификаторы подзадач эпика с указанным статусом.
+     */
+    IntArraySet getSubtasks(Status status) {
+        return subtasks.get(status);
+    }
+
+    /**
+     * Возвращает статус эпика по правилам:
+     * нет подзадач или все NEW → NEW; все DONE → DONE; иначе → IN_PROGRESS.
+     */
+    Status getStatus() {
+        if (subtasks.get(Status.NEW).size() == total) {
+            return Status.NEW;
+        } else if (subtasks.get(Status.DONE).size() == total) {
+            return Status.DONE;
+        }
+        return Status.IN_PROGRESS;
+    }
+}
@@ -2,19 +2,47 @@
  * Класс FileBackedTaskManager реализует интерфейс TaskManager и предоставляет функциональность
  * для сохранения и загрузки задач из файла. Все операции с задачами (добавление, обновление, удаление)
  * автоматически сохраняются в файл, а при запуске программы данные загружаются из него.
+ * Способ хранения задаётся {@link TaskStorage}: по умолчанию файл перезаписывается целиком
+ * ({@link SnapshotStorage}), в режиме журнала ({@link JournalStorage}) изменения дописываются в конец,
+ * а {@link CheckpointStorage} дополнительно сворачивает журнал в контрольную точку в фоновом потоке.
+ * <p>
+ * Методы менеджера можно вызывать из разных потоков: изменение в памяти и передача его хранилищу
+ * выполняются под блокировкой менеджера, а ожидание записи на диск ({@link TaskStorage#sync()}) — вне её,
+ * поэтому хранилище вроде {@link GroupCommitStorage} может объединить записи нескольких вызывающих в одну.
+ * Хранилище с отложенной записью ({@link WriteBehindStorage}) может задержать или отклонить изменение
+ * ещё до его применения, если не успевает сохранять.
+ * Изменения, сделанные в {@link #transaction(Consumer)}, передаются хранилищу только после успешного
+ * завершения блока и сохраняются одной записью.
+ * История просмотров по умолчанию хранится только в памяти; {@link PersistentHistoryManager}
+ * сохраняет её между запусками.
  */
 package ru.practikum.manager;
 
 import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.storage.CheckpointStorage;
+import ru.practikum.storage.GroupCommitStorage;
+import ru.practikum.storage.JournalStorage;
+import ru.practikum.storage.SnapshotStorage;
+import ru.practikum.storage.TaskLineFormat;
+import ru.practikum.storage.TaskStorage;
+import ru.practikum.storage.WriteBehindStorage;
 import ru.practikum.task.Epic;
+import ru.practikum.task.Status;
 import ru.practikum.task.Subtask;
 import ru.practikum.task.Task;
+import ru.practikum.utils.Managers;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-public class FileBackedTaskManager implements TaskManager {
+public class FileBackedTaskManager implements TaskManager, AutoCloseable {
 
     /**
      * Имя файла, в котором хранятся задачи.
@@ -24,7 +52,22 @@ public class FileBackedTaskManager implements TaskManager {
     /**
      * Экземпляр менеджера задач, используемый для хранения данных в памяти.
      */
-    private static TaskManager manager;
+    private final TaskManager manager;
+
+    /**
+     * Хранилище, в которое записываются изменения.
+     */
+    private final TaskStorage storage;
+
+    /**
+     * История просмотров менеджера в памяти.
+     */
+    private final HistoryManager historyManager;
+
+    /**
+     * Сообщения хранилищу об изменениях текущей транзакции, передаваемые при её фиксации; null вне транзакции.
+     */
+    private List<StorageChange> transaction;
 
     /**
      * Конструктор класса FileBackedTaskManager.
@@ -35,72 +78,127 @@ public class FileBackedTaskManager implements TaskManager {
      * @param fileName Путь к файлу, из которого необходимо загрузить данные
      */
     public FileBackedTaskManager(String fileName) {
-        manager = new InMemoryTaskManager();
-        tasksFileName = fileName;
+        this(new SnapshotStorage(fileName));
+    }
+
+    /**
+     * Создаёт менеджер задач с указанным способом хранения и загружает из него данные.
+     * Ошибка загрузки выводится на экран, и менеджер начинает работу с тем, что удалось загрузить.
+     *
+     * @param storage хранилище задач, например {@link JournalStorage}
+     */
+    public FileBackedTaskManager(TaskStorage storage) {
+        this(storage, Managers.getDefaultHistory());
+    }
+
+    /**
+     * Создаёт менеджер задач с указанными способом хранения и историей просмотров и загружает данные.
+     * Если история сохраняется в файл ({@link PersistentHistoryManager}), она восстанавливается
+     * после загрузки задач и закрывается вместе с менеджером.
+     *
+     * @param storage        хранилище задач
+     * @param historyManager история просмотров
+     */
+    public FileBackedTaskManager(TaskStorage storage, HistoryManager historyManager) {
+        this.manager = new InMemoryTaskManager<>(historyManager);
+        this.historyManager = historyManager;
+        this.storage = storage;
+        this.tasksFileName = storage.getFileName();
         try {
-            loadFromFile(new File(fileName));
+            storage.load(manager);
+            if (historyManager instanceof PersistentHistoryManager persistentHistory) {
+                persistentHistory.restore(manager);
+            }
         } catch (ManagerSaveException e) {
             System.out.println(e.getMessage());
         }
     }
 
     /**
-     * Загружает задачи из указанного файла в менеджер.
+     * Создаёт менеджер задач, загружая задачи из указанного файла.
      *
      * @param file файл, из которого будут загружены задачи
-     * @throws ManagerSaveException если файл не существует, не является файлом или произошла ошибка при чтении
+     * @return менеджер задач, сохраняющий изменения в этот же файл
+     * @throws ManagerSaveException если файл не существует или не является файлом
      */
-    public static void loadFromFile(File file) throws ManagerSaveException {
+    public static FileBackedTaskManager loadFromFile(File file) throws ManagerSaveException {
         if (!file.exists() || !file.isFile()) {
             throw new ManagerSaveException("Файл задач не является файлом или не существует");
         }
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            while (reader.ready()) {
-                String issue = reader.readLine();
-                String issueType = issue.split("\\{")[0];
-                switch (issueType) {
-                    case "Task" -> manager.addIssue(new Task(issue));
-                    case "Subtask" -> manager.addIssue(new Subtask(issue));
-                    case "Epic" -> manager.addIssue(new Epic(issue));
-                }
-            }
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-        }
+        return new FileBackedTaskManager(file.getPath());
     }
 
     /**
-     * Сохраняет текущие задачи в файл.
+     * Сохраняет текущие задачи в файл в текстовом формате.
      *
      * @throws ManagerSaveException если произошла ошибка при записи в файл
      */
     public void save(String fileName) throws ManagerSaveException {
         try (FileWriter writer = new FileWriter(fileName)) {
-            getTasksList().get("Epic").forEach(issue -> convertTaskToString(writer, "Epic", issue));
-            getTasksList().get("Subtask").forEach(issue -> convertTaskToString(writer, "Subtask", issue));
-            getTasksList().get("Task").forEach(issue -> convertTaskToString(writer, "Task", issue));
+            TaskLineFormat.writeSnapshot(writer, getTasksList());
         } catch (IOException e) {
             throw new ManagerSaveException(e.getMessage());
         }
     }
 
     /**
-     * Преобразует задачу в строку и записывает её в файл.
+     * Сообщение хранилищу о применённом изменении.
+     */
+    @FunctionalInterface
+    private interface StorageUpdate<R> {
+        void accept(R result) throws ManagerSaveException;
+    }
+
+    /**
+     * Отложенное до фиксации транзакции сообщение хранилищу.
+     */
+    @FunctionalInterface
+    private interface StorageChange {
+        void send() throws ManagerSaveException;
+    }
+
+    /**
+     * Применяет изменение в памяти и передаёт его хранилищу под блокировкой менеджера,
+     * затем вне блокировки ждёт сохранения. Ошибка записи выводится на экран, изменение в памяти остаётся.
+     * Внутри транзакции сообщение хранилищу откладывается до её фиксации.
      *
-     * @param writer объект FileWriter для записи в файл
-     * @param type   тип задачи ("Task", "Subtask", "Epic")
-     * @param issue  объект задачи
+     * @param mutation изменение в памяти
+     * @param update   сообщение хранилищу о применённом изменении
+     * @return результат изменения
+     * @throws IllegalStateException если хранилище отклонило изменение; в этом случае оно не применяется
      */
-    private void convertTaskToString(FileWriter writer, String type, Object issue) {
-        try {
-            switch (type) {
-                case "Task" -> writer.write(((Task) issue).toString() + "\n");
-                case "Subtask" -> writer.write(((Subtask) issue).toString() + "\n");
-                case "Epic" -> writer.write(((Epic) issue).toString() + "\n");
+    private <R> R mutate(Supplier<R> mutation, StorageUpdate<R> update) {
+        R result;
+        synchronized (this) {
+            if (transaction != null) {
+                R applied = mutation.get();
+                transaction.add(() -> update.accept(applied));
+                return applied;
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            try {
+                storage.reserve();
+            } catch (ManagerSaveException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+            try {
+                result = mutation.get();
+            } catch (RuntimeException e) {
+                storage.release();
+                throw e;
+            }
+            try {
+                update.accept(result);
+            } catch (ManagerSaveException e) {
+                System.out.println(e.getMessage());
+                return result;
+            }
+        }
+        try {
+            storage.sync();
+        } catch (ManagerSaveException e) {
+            System.out.println(e.getMessage());
         }
+        return result;
     }
 
     /**
@@ -111,13 +209,7 @@ public class FileBackedTaskManager implements TaskManager {
      */
     @Override
     public <T extends Task> int addIssue(T issue) {
-        int id = manager.addIssue(issue);
-        try {
-            save(tasksFileName);
-        } catch (ManagerSaveException e) {
-            System.out.println(e.getMessage());
-        }
-        return id;
+        return mutate(() -> manager.addIssue(issue), id -> storage.issueAdded(issue));
     }
 
     /**
@@ -129,13 +221,124 @@ public class FileBackedTaskManager implements TaskManager {
      */
     @Override
     public <T extends Task> T updateIssue(int id, T issue) {
-        T updatedIssue = manager.updateIssue(id, issue);
+        return mutate(() -> manager.updateIssue(id, issue), storage::issueUpdated);
+    }
+
+    /**
+     * Добавляет задачи одной операцией и сохраняет их в файл одной записью.
+     * Пустой набор ничего не меняет и не занимает место в хранилище.
+     *
+     * @param issues задачи в порядке добавления
+     * @return идентификаторы добавленных задач
+     */
+    @Override
+    public <T extends Task> List<Integer> addIssues(Collection<T> issues) {
+        if (issues.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<T> added = new ArrayList<>(issues);
+        return mutate(() -> manager.addIssues(added), ids -> storage.issuesAdded(added));
+    }
+
+    /**
+     * Обновляет задачи одной операцией и сохраняет их в файл одной записью.
+     * Пустой набор ничего не меняет и не занимает место в хранилище.
+     *
+     * @param issues новые версии задач по идентификатору
+     * @return обновлённые задачи
+     */
+    @Override
+    public <T extends Task> List<T> updateIssues(Map<Integer, T> issues) {
+        if (issues.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return mutate(() -> manager.updateIssues(issues), storage::issuesUpdated);
+    }
+
+    /**
+     * Удаляет задачи одного типа одной операцией и сохраняет изменения в файл одной записью.
+     * Пустой набор ничего не меняет и не занимает место в хранилище.
+     *
+     * @param issueType тип задач ("Task", "Subtask", "Epic")
+     * @param ids       идентификаторы удаляемых задач
+     */
+    @Override
+    public void removeIssues(String issueType, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Integer> removed = new ArrayList<>(new LinkedHashSet<>(ids));
+        mutate(() -> {
+            manager.removeIssues(issueType, removed);
+            return null;
+        }, result -> storage.issuesRemoved(issueType, removed));
+    }
+
+    /**
+     * Выполняет изменения как одно целое и сохраняет их одной записью.
+     * <p>
+     * Блок выполняется под блокировкой менеджера, изменения применяются в памяти сразу, а сообщения о них
+     * копятся и передаются хранилищу подряд между {@link TaskStorage#beginTransaction()} и
+     * {@link TaskStorage#commitTransaction()} только после успешного завершения блока. Если блок завершается
+     * исключением, изменения откатываются в памяти (см. {@link InMemoryTaskManager#transaction(Consumer)}),
+     * а хранилище о них не узнаёт. Ошибка записи выводится на экран, изменения в памяти остаются.
+     *
+     * @param work блок изменений; получает этот менеджер
+     * @throws IllegalStateException если хранилище отклонило транзакцию; в этом случае блок не выполняется
+     */
+    @Override
+    public void transaction(Consumer<TaskManager> work) {
+        synchronized (this) {
+            if (transaction != null) {
+                int mark = transaction.size();
+                try {
+                    manager.transaction(tx -> work.accept(this));
+                } catch (RuntimeException | Error e) {
+                    transaction.subList(mark, transaction.size()).clear();
+                    throw e;
+                }
+                return;
+            }
+            try {
+                storage.reserve();
+            } catch (ManagerSaveException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+            List<StorageChange> changes = new ArrayList<>();
+            transaction = changes;
+            try {
+                manager.transaction(tx -> work.accept(this));
+            } catch (RuntimeException | Error e) {
+                storage.release();
+                throw e;
+            } finally {
+                transaction = null;
+            }
+            if (changes.isEmpty()) {
+                storage.release();
+                return;
+            }
+            try {
+                storage.beginTransaction();
+                try {
+                    for (StorageChange change : changes) {
+                        change.send();
+                    }
+                } catch (ManagerSaveException e) {
+                    storage.rollbackTransaction();
+                    throw e;
+                }
+                storage.commitTransaction();
+            } catch (ManagerSaveException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
+        }
         try {
-            save(tasksFileName);
+            storage.sync();
         } catch (ManagerSaveException e) {
             System.out.println(e.getMessage());
         }
-        return updatedIssue;
     }
 
     /**
@@ -146,10 +349,36 @@ public class FileBackedTaskManager implements TaskManager {
      * @return список задач указанного типа
      */
     @Override
-    public <T extends Task> List<T> getIssuesList(String issueType, Class<T> type) {
+    public synchronized <T extends Task> List<T> getIssuesList(String issueType, Class<T> type) {
         return manager.getIssuesList(issueType, type);
     }
 
+    /**
+     * Возвращает страницу списка задач указанного типа.
+     *
+     * @param issueType тип задачи ("Task", "Subtask", "Epic")
+     * @param type      класс задачи
+     * @param offset    количество пропускаемых задач
+     * @param limit     максимальный размер страницы
+     * @return список задач страницы
+     */
+    @Override
+    public synchronized <T extends Task> List<T> getIssuesList(String issueType, Class<T> type, int offset, int limit) {
+        return manager.getIssuesList(issueType, type, offset, limit);
+    }
+
+    /**
+     * Возвращает ленивый поток задач указанного типа.
+     *
+     * @param issueType тип задачи ("Task", "Subtask", "Epic")
+     * @param type      класс задачи
+     * @return поток задач
+     */
+    @Override
+    public synchronized <T extends Task> Stream<T> streamIssues(String issueType, Class<T> type) {
+        return manager.streamIssues(issueType, type);
+    }
+
     /**
      * Удаляет все задачи указанного типа из менеджера и сохраняет изменения в файл.
      *
@@ -157,12 +386,10 @@ public class FileBackedTaskManager implements TaskManager {
      */
     @Override
     public void clearIssuesList(String issueType) {
-        manager.clearIssuesList(issueType);
-        try {
-            save(tasksFileName);
-        } catch (ManagerSaveException e) {
-            System.out.println(e.getMessage());
-        }
+        mutate(() -> {
+            manager.clearIssuesList(issueType);
+            return null;
+        }, result -> storage.issuesCleared(issueType));
     }
 
     /**
@@ -173,7 +400,7 @@ public class FileBackedTaskManager implements TaskManager {
      * @return задача с указанным идентификатором
      */
     @Override
-    public <T extends Task> T getIssueById(int id, String issueType) {
+    public synchronized <T extends Task> T getIssueById(int id, String issueType) {
         return manager.getIssueById(id, issueType);
     }
 
@@ -183,20 +410,20 @@ public class FileBackedTaskManager implements TaskManager {
      * @param issueType тип задачи ("Task", "Subtask", "Epic")
      */
     @Override
-    public void printIssues(String issueType) {
+    public synchronized void printIssues(String issueType) {
         manager.printIssues(issueType);
     }
 
     /**
-     * Выводит содержимое файла задач на экран.
+     * Выводит все задачи на экран в том же виде и порядке, в котором они записываются в файл задач.
      */
     @Override
-    public void printAllIssues() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(tasksFileName))) {
-            while (reader.ready()) {
-                System.out.println(reader.readLine());
-            }
-        } catch (Exception e) {
+    public synchronized void printAllIssues() {
+        try {
+            Writer writer = new OutputStreamWriter(System.out);
+            TaskLineFormat.writeSnapshot(writer, getTasksList());
+            writer.flush();
+        } catch (IOException e) {
             System.out.println(e.getMessage());
         }
     }
@@ -209,12 +436,10 @@ public class FileBackedTaskManager implements TaskManager {
      */
     @Override
     public void removeIssueById(int id, String issueType) {
-        manager.removeIssueById(id, issueType);
-        try {
-            save(tasksFileName);
-        } catch (ManagerSaveException e) {
-            System.out.println(e.getMessage());
-        }
+        mutate(() -> {
+            manager.removeIssueById(id, issueType);
+            return null;
+        }, result -> storage.issueRemoved(issueType, id));
     }
 
     /**
@@ -223,21 +448,81 @@ public class FileBackedTaskManager implements TaskManager {
      * @return карта, содержащая историю просмотров задач
      */
     @Override
-    public <T extends Task> Map<String, T> getHistory() {
+    public synchronized <T extends Task> Map<String, T> getHistory() {
         return manager.getHistory();
     }
 
+    /**
+     * Возвращает задачи указанного типа с указанным статусом.
+     *
+     * @param issueType тип задачи ("Task", "Subtask", "Epic")
+     * @param status    статус задачи
+     * @param type      класс задачи
+     * @return список задач с указанным статусом
+     */
+    @Override
+    public synchronized <T extends Task> List<T> getIssuesByStatus(String issueType, Status status, Class<T> type) {
+        return manager.getIssuesByStatus(issueType, status, type);
+    }
+
+    /**
+     * Возвращает подзадачи эпика, при необходимости только с указанным статусом.
+     *
+     * @param epicId идентификатор эпика
+     * @param status статус подзадач или null для всех подзадач
+     * @return список подзадач эпика
+     */
+    @Override
+    public synchronized List<Subtask> getEpicSubtasks(int epicId, Status status) {
+        return manager.getEpicSubtasks(epicId, status);
+    }
+
+    /**
+     * Ищет задачи по словам из названия и описания.
+     *
+     * @param query строка запроса
+     * @return найденные задачи
+     */
+    @Override
+    public synchronized List<Task> search(String query) {
+        return manager.search(query);
+    }
+
     /**
      * Возвращает список всех задач, разбитый по типам.
      *
-     * @return карта, где ключ - тип задачи, значение - список задач
+     * @return карта, где ключ - тип задачи, значение - задачи этого типа по идентификатору
      */
     @Override
-    public Map<String, List<Object>> getTasksList() {
+    public synchronized Map<String, Map<Integer, Task>> getTasksList() {
         return manager.getTasksList();
     }
 
+    /**
+     * Возвращает версию списка задач без блокировки менеджера, см. {@link TaskManager#getVersion(String)}.
+     */
+    @Override
+    public long getVersion(String issueType) {
+        return manager.getVersion(issueType);
+    }
+
     public String getTasksFileName() {
         return tasksFileName;
     }
-}
\ No newline at end of file
+
+    /**
+     * Закрывает хранилище задач и сохраняемую историю просмотров.
+     *
+     * @throws ManagerSaveException если не удалось завершить запись в файл
+     */
+    @Override
+    public void close() throws ManagerSaveException {
+        try {
+            storage.close();
+        } finally {
+            if (historyManager instanceof PersistentHistoryManager persistentHistory) {
+                persistentHistory.close();
+            }
+        }
+    }
+}
@@ -11,4 +11,6 @@ public interface HistoryManager {
     <T extends Task> Map<String, T> getHistory();
 
     <T extends Task> void remove(T issue);
+
+    long getEvictionCount();
 }
@@ -1,6 +1,8 @@
 /**
  * Реализация интерфейса {@link HistoryManager}, предоставляющая функционал для хранения истории задач в памяти.
- * Использует структуру {@link LinkedHashSet} для сохранения порядка добавления и исключения дубликатов.
+ * Использует хеш-таблицу с ключами {@code long} (тип задачи + идентификатор), указывающую на узлы
+ * интрузивного двусвязного списка, для сохранения порядка просмотров и исключения дубликатов.
+ * Размер истории может быть ограничен: при переполнении за O(1) вытесняется самый давний просмотр.
  *
  * @author [Ваше имя]
  * @version 1.0
@@ -8,25 +10,88 @@
  */
 package ru.practikum.manager;
 
+import ru.practikum.task.IssueType;
 import ru.practikum.task.Task;
+import ru.practikum.utils.LongObjectHashMap;
 
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
 
 public class InMemoryHistoryManager implements HistoryManager {
 
     /**
-     * Набор задач, представляющий историю просмотров.
-     * Элементы хранятся в порядке добавления и не повторяются.
+     * Узел списка просмотров. Хранит ключ, чтобы при удалении из списка не вычислять его заново.
      */
-    private final Map<String, Object> history = new LinkedHashMap<>();
+    private static final class Node {
+        private long key;
+        private Task issue;
+        private Node prev;
+        private Node next;
+
+        private Node(long key, Task issue) {
+            this.key = key;
+            this.issue = issue;
+        }
+    }
+
+    /**
+     * Максимальное количество задач в истории.
+     */
+    private final int capacity;
+
+    /**
+     * Количество задач, вытесненных из истории из-за превышения ёмкости.
+     */
+    private long evictionCount;
+
+    /**
+     * Узлы истории по ключу «тип задачи + идентификатор».
+     */
+    private final LongObjectHashMap<Node> nodes = new LongObjectHashMap<>();
+
+    /**
+     * Самый давний просмотр.
+     */
+    private Node head;
+
+    /**
+     * Самый последний просмотр.
+     */
+    private Node tail;
+
+    /**
+     * Создаёт историю без ограничения размера.
+     */
+    public InMemoryHistoryManager() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Создаёт историю, хранящую не больше {@code capacity} последних просмотренных задач.
+     *
+     * @param capacity максимальное количество задач в истории
+     * @throws IllegalArgumentException если ёмкость меньше 1
+     */
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость истории должна быть положительной");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Вычисляет ключ задачи: порядковый номер типа в старших 32 битах, идентификатор — в младших.
+     */
+    private static long keyOf(Task issue) {
+        return ((long) IssueType.of(issue).ordinal() << 32) | (issue.getId() & 0xFFFFFFFFL);
+    }
 
     /**
      * Добавляет указанную задачу в историю.
-     * Если задача уже существует в истории, она будет удалена и заново добавлена,
-     * чтобы поддерживать актуальный порядок.
+     * Если задача уже существует в истории, её узел переносится в конец списка за O(1),
+     * чтобы поддерживать актуальный порядок. Повторный просмотр не выделяет память.
+     * Если история заполнена, самая давно просмотренная задача вытесняется, а её узел переиспользуется.
      *
      * @param issue задача, которую нужно добавить
      * @param <T>   тип задачи, должен быть наследником класса {@link Task}
@@ -34,21 +99,40 @@ public class InMemoryHistoryManager implements HistoryManager {
     @Override
     public <T extends Task> void addToHistory(T issue) {
         if (issue != null) {
-            String key = String.format("%d_%s", issue.getId(), issue.getClass().getSimpleName().toLowerCase(Locale.ROOT));
-            if (history.containsKey(key)) {
-                history.remove(key);
+            long key = keyOf(issue);
+            Node node = nodes.get(key);
+            if (node != null) {
+                node.issue = issue;
+                if (node != tail) {
+                    unlink(node);
+                    linkLast(node);
+                }
+            } else {
+                if (nodes.size() == capacity) {
+                    node = evictEldest();
+                    node.key = key;
+                    node.issue = issue;
+                } else {
+                    node = new Node(key, issue);
+                }
+                nodes.put(key, node);
+                linkLast(node);
             }
-            history.put(key, issue);
         }
     }
 
     /**
-     * Возвращает набор задач, представляющих историю просмотров.
+     * Возвращает задачи, представляющие историю просмотров, от самого давнего просмотра к последнему.
+     * Ключ — строка вида {@code "1_task"}. Карта строится при каждом вызове.
      *
-     * @return история задач в виде множества
+     * @return история задач
      */
     @Override
     public Map<String, Object> getHistory() {
+        Map<String, Object> history = new LinkedHashMap<>();
+        for (Node node = head; node != null; node = node.next) {
+            history.put(node.issue.getId() + "_" + IssueType.of(node.issue).getName().toLowerCase(Locale.ROOT), node.issue);
+        }
         return history;
     }
 
@@ -60,7 +144,57 @@ public class InMemoryHistoryManager implements HistoryManager {
      */
     @Override
     public <T extends Task> void remove(T issue) {
-        String key = String.format("%d_%s", issue.getId(), issue.getClass().getSimpleName().toLowerCase(Locale.ROOT));
-        history.remove(key);
+        Node node = nodes.remove(keyOf(issue));
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Возвращает количество задач, вытесненных из истории из-за превышения ёмкости.
+     *
+     * @return счётчик вытеснений
+     */
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private Node evictEldest() {
+        Node eldest = head;
+        nodes.remove(eldest.key);
+        unlink(eldest);
+        evictionCount++;
+        return eldest;
+    }
+
+    private void linkLast(Node node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
     }
-}
\ No newline at end of file
+}
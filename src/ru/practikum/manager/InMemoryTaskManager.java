@@ -4,28 +4,63 @@ import ru.practikum.task.Epic;
 import ru.practikum.task.Status;
 import ru.practikum.task.Subtask;
 import ru.practikum.task.Task;
+import ru.practikum.utils.IntArraySet;
+import ru.practikum.utils.IntObjectHashMap;
 import ru.practikum.utils.Managers;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class InMemoryTaskManager<T extends Task> implements TaskManager {
 
-    //список задач
-    private Map<String, List<Object>> tasksList;
-    private int taskIdCounter;
-    private int subtaskIdCounter;
-    private int epicIdCounter;
+    //хранилище задач: тип задачи -> (идентификатор -> задача), порядок добавления сохраняется
+    private Map<String, IntObjectHashMap<Task>> tasksList;
+    private final AtomicInteger taskIdCounter = new AtomicInteger();
+    private final AtomicInteger subtaskIdCounter = new AtomicInteger();
+    private final AtomicInteger epicIdCounter = new AtomicInteger();
     private HistoryManager historyManager;
+    //индекс по статусам: тип задачи -> (статус -> идентификаторы задач)
+    private final Map<String, Map<Status, IntArraySet>> statusIndex = new HashMap<>();
+    //индекс подзадач по родительскому эпику и статусу: идентификатор эпика -> индекс его подзадач
+    private final IntObjectHashMap<EpicSubtaskIndex> epicSubtasksIndex = new IntObjectHashMap<>();
+    //полнотекстовый индекс по названию и описанию: тип задачи -> индекс
+    private final Map<String, SearchIndex> searchIndex = new HashMap<>();
+    //режим сверки счётчиков статусов с полным пересчётом
+    private boolean epicStatusVerification;
+    //эпики, пересчёт статуса которых отложен до конца пакетной операции; null вне пакетной операции.
+    //у каждого потока свои: ConcurrentTaskManager выполняет пакеты задач и подзадач одновременно
+    private final ThreadLocal<IntArraySet> deferredEpics = new ThreadLocal<>();
+    //действия, отменяющие изменения текущей транзакции, последнее — первым; null вне транзакции
+    private Deque<Runnable> undoLog;
+    //счётчик версий: каждое изменение задачи или списка задач получает следующее значение
+    private final AtomicLong versionCounter = new AtomicLong();
+    //версии списков задач по типам
+    private final Map<String, AtomicLong> collectionVersions = new HashMap<>();
 
     public InMemoryTaskManager() {
-        taskIdCounter = 0;
-        subtaskIdCounter = 0;
-        epicIdCounter = 0;
-        historyManager = Managers.getDefaultHistory();
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
         tasksList = new LinkedHashMap<>();
-        tasksList.put(Task.class.getSimpleName(), new LinkedList<>());
-        tasksList.put(Subtask.class.getSimpleName(), new LinkedList<>());
-        tasksList.put(Epic.class.getSimpleName(), new LinkedList<>());
+        tasksList.put(Task.class.getSimpleName(), new IntObjectHashMap<>());
+        tasksList.put(Subtask.class.getSimpleName(), new IntObjectHashMap<>());
+        tasksList.put(Epic.class.getSimpleName(), new IntObjectHashMap<>());
+        tasksList.keySet().forEach(issueType -> {
+            Map<Status, IntArraySet> index = new EnumMap<>(Status.class);
+            for (Status status : Status.values()) {
+                index.put(status, new IntArraySet());
+            }
+            statusIndex.put(issueType, index);
+            searchIndex.put(issueType, new SearchIndex());
+            collectionVersions.put(issueType, new AtomicLong());
+        });
     }
 
     /**
@@ -40,37 +75,157 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
 
     /**
      * Добавляет задачу в соответствующий список в зависимости от её типа.
+     * <p>
+     * Если у задачи уже есть идентификатор (например, при загрузке из файла), он сохраняется,
+     * а счётчик идентификаторов соответствующего типа сдвигается так, чтобы не выдать его повторно.
+     * Список подзадач добавляемого эпика формируется заново по мере добавления его подзадач.
      *
      * @param issue Задача, которую необходимо добавить
      * @return Идентификатор добавленной задачи
+     * @throws IllegalArgumentException если задача с таким идентификатором уже существует
+     *                                  или у подзадачи не найден родительский эпик
      */
     @Override
     public <T extends Task> int addIssue(T issue) {
         String issueType = issue.getClass().getSimpleName();
         switch (issueType) {
             case "Task" -> {
-                updateId(issue, incTaskIdCounter());
-                tasksList.get(issueType).add(issue);
+                updateId(issue, taskIdCounter);
+                putIssue(issueType, issue);
             }
             case "Subtask" -> {
-                updateId(issue, incSubtaskIdCounter());
-                tasksList.get(issueType).add(issue);
                 Epic parentEpic = getIssueByClass(Subtask.class.cast(issue).getEpicId(), Epic.class);
-                parentEpic.getSubtasks().add(issue.getId());
-                updateEpicStatus(parentEpic.getId());
+                updateId(issue, subtaskIdCounter);
+                putIssue(issueType, issue);
+                parentEpic.getSubtasks().addInt(issue.getId());
+                epicSubtasksIndex.get(parentEpic.getId()).add(issue.getId(), issue.getStatus());
+                touch("Epic", parentEpic);
+                touchEpic(parentEpic.getId());
             }
             case "Epic" -> {
-                updateId(issue, incEpicIdCounter());
-                tasksList.get(issueType).add(issue);
+                updateId(issue, epicIdCounter);
+                putIssue(issueType, issue);
+                epicSubtasksIndex.put(issue.getId(), new EpicSubtaskIndex());
+                Epic.class.cast(issue).getSubtasks().clear();
+                touchEpic(issue.getId());
             }
         }
         historyManager.addToHistory(issue);
-        return issue.getId();
+        int id = issue.getId();
+        logUndo(() -> removeIssueById(id, issueType));
+        return id;
+    }
+
+    /**
+     * Массово загружает задачи, например прочитанные из файла.
+     * <p>
+     * В отличие от {@link #addIssue(Task)}, не записывает задачи в историю просмотров и не пересчитывает
+     * статус эпика после каждой подзадачи: сначала добавляются эпики, затем задачи и подзадачи,
+     * после чего статус каждого затронутого эпика вычисляется один раз.
+     * Задачи проверяются до загрузки, поэтому при ошибке менеджер не изменяется.
+     *
+     * @param issues задачи в любом порядке; заданные идентификаторы сохраняются
+     * @throws IllegalArgumentException если идентификатор повторяется или у подзадачи не найден родительский эпик
+     */
+    public void loadIssues(Collection<? extends Task> issues) {
+        Map<String, IntArraySet> loadedIds = new HashMap<>();
+        tasksList.keySet().forEach(issueType -> loadedIds.put(issueType, new IntArraySet()));
+        for (Task issue : issues) {
+            String issueType = issue.getClass().getSimpleName();
+            if (issue.getId() != 0 && (tasksList.get(issueType).containsKey(issue.getId())
+                    || !loadedIds.get(issueType).addInt(issue.getId()))) {
+                throw new IllegalArgumentException("Задача с таким идентификатором уже существует");
+            }
+        }
+        for (Task issue : issues) {
+            if (issue instanceof Subtask subtask && !tasksList.get("Epic").containsKey(subtask.getEpicId())
+                    && !loadedIds.get("Epic").containsInt(subtask.getEpicId())) {
+                throw new IllegalArgumentException("Задача с таким идентификатором не найдена");
+            }
+        }
+
+        IntArraySet touchedEpics = new IntArraySet();
+        for (Task issue : issues) {
+            if (issue instanceof Epic epic) {
+                updateId(epic, epicIdCounter);
+                putIssue("Epic", epic);
+                epicSubtasksIndex.put(epic.getId(), new EpicSubtaskIndex());
+                epic.getSubtasks().clear();
+                touchedEpics.addInt(epic.getId());
+            }
+        }
+        for (Task issue : issues) {
+            if (issue instanceof Subtask subtask) {
+                updateId(subtask, subtaskIdCounter);
+                putIssue("Subtask", subtask);
+                Epic epic = findIssue(subtask.getEpicId(), Epic.class);
+                epic.getSubtasks().addInt(subtask.getId());
+                touch("Epic", epic);
+                epicSubtasksIndex.get(subtask.getEpicId()).add(subtask.getId(), subtask.getStatus());
+                touchedEpics.addInt(subtask.getEpicId());
+            } else if (!(issue instanceof Epic)) {
+                updateId(issue, taskIdCounter);
+                putIssue("Task", issue);
+            }
+        }
+        touchedEpics.forEachInt(this::updateEpicStatus);
     }
 
-    private <T extends Task> void updateId(T issue, int id) {
+    /**
+     * Назначает задаче следующий идентификатор, если он ещё не задан,
+     * иначе сдвигает счётчик за уже заданный идентификатор.
+     *
+     * @param issue   задача
+     * @param counter счётчик идентификаторов для типа задачи
+     */
+    private <T extends Task> void updateId(T issue, AtomicInteger counter) {
         if (issue.getId() == 0) {
-            issue.setId(id);
+            issue.setId(counter.incrementAndGet());
+        } else {
+            counter.accumulateAndGet(issue.getId(), Math::max);
+        }
+    }
+
+    private <T extends Task> void putIssue(String issueType, T issue) {
+        IntObjectHashMap<Task> issues = tasksList.get(issueType);
+        if (issues.containsKey(issue.getId())) {
+            throw new IllegalArgumentException("Задача с таким идентификатором уже существует");
+        }
+        issues.put(issue.getId(), issue);
+        statusIndex.get(issueType).get(issue.getStatus()).addInt(issue.getId());
+        searchIndex.get(issueType).add(issue.getId(), issue.getSummary(), issue.getDescription());
+        touch(issueType, issue);
+    }
+
+    /**
+     * Присваивает изменённой задаче и списку задач её типа следующую версию.
+     *
+     * @param issueType тип задачи
+     * @param issue     изменённая задача или {@code null}, если задача удалена
+     */
+    private void touch(String issueType, Task issue) {
+        long version = versionCounter.incrementAndGet();
+        if (issue != null) {
+            issue.setVersion(version);
+        }
+        collectionVersions.get(issueType).set(version);
+    }
+
+    @Override
+    public long getVersion(String issueType) {
+        return collectionVersions.get(issueType).get();
+    }
+
+    /**
+     * Меняет статус задачи, поддерживая индекс по статусам.
+     */
+    private void changeStatus(String issueType, Task issue, Status status) {
+        if (issue.getStatus() != status) {
+            Map<Status, IntArraySet> index = statusIndex.get(issueType);
+            index.get(issue.getStatus()).removeInt(issue.getId());
+            index.get(status).addInt(issue.getId());
+            issue.setStatus(status);
+            touch(issueType, issue);
         }
     }
 
@@ -88,19 +243,30 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
      */
     @Override
     public <T extends Task> T updateIssue(int id, T issue) {
-        T updatedIssue = getIssueById(id, issue.getClass().getSimpleName());
+        String issueType = issue.getClass().getSimpleName();
+        T updatedIssue = getIssueById(id, issueType);
+        if (undoLog != null) {
+            Task previous = copyOf(updatedIssue);
+            logUndo(() -> updateIssue(id, previous));
+        }
+        SearchIndex index = searchIndex.get(issueType);
+        index.remove(id, updatedIssue.getSummary(), updatedIssue.getDescription());
         updatedIssue.setDescription(issue.getDescription());
         updatedIssue.setSummary(issue.getSummary());
+        index.add(id, updatedIssue.getSummary(), updatedIssue.getDescription());
+        touch(issueType, updatedIssue);
         switch (updatedIssue.getClass().getSimpleName()) {
             case "Subtask" -> {
-                updatedIssue.setStatus(issue.getStatus());
-                updateEpicStatus(Subtask.class.cast(updatedIssue).getEpicId());
+                int epicId = Subtask.class.cast(updatedIssue).getEpicId();
+                epicSubtasksIndex.get(epicId).change(id, updatedIssue.getStatus(), issue.getStatus());
+                changeStatus("Subtask", updatedIssue, issue.getStatus());
+                touchEpic(epicId);
             }
             case "Epic" -> {
                 return updatedIssue;
             }
             default -> {
-                updatedIssue.setStatus(issue.getStatus());
+                changeStatus("Task", updatedIssue, issue.getStatus());
                 return updatedIssue;
             }
         }
@@ -109,30 +275,245 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
     }
 
     /**
-     * Обновляет статус эпика на основе статусов его подзадач.
+     * Добавляет задачи по одной, как {@link #addIssue(Task)}, но пересчитывает статус каждого затронутого эпика
+     * один раз в конце. Задачи проверяются до добавления, поэтому при ошибке менеджер не изменяется.
+     *
+     * @param issues задачи в порядке добавления
+     * @return идентификаторы добавленных задач в том же порядке
+     * @throws IllegalArgumentException если идентификатор повторяется или у подзадачи не найден родительский эпик,
+     *                                  добавляемый раньше неё или уже существующий
+     */
+    @Override
+    public <T extends Task> List<Integer> addIssues(Collection<T> issues) {
+        Map<String, IntArraySet> addedIds = new HashMap<>();
+        tasksList.keySet().forEach(issueType -> addedIds.put(issueType, new IntArraySet()));
+        for (T issue : issues) {
+            String issueType = issue.getClass().getSimpleName();
+            if (issue.getId() != 0 && (tasksList.get(issueType).containsKey(issue.getId())
+                    || !addedIds.get(issueType).addInt(issue.getId()))) {
+                throw new IllegalArgumentException("Задача с таким идентификатором уже существует");
+            }
+            if (issue instanceof Subtask subtask && !tasksList.get("Epic").containsKey(subtask.getEpicId())
+                    && !addedIds.get("Epic").containsInt(subtask.getEpicId())) {
+                throw new IllegalArgumentException("Задача с таким идентификатором не найдена");
+            }
+        }
+        return inBatch(() -> {
+            List<Integer> ids = new ArrayList<>(issues.size());
+            for (T issue : issues) {
+                ids.add(addIssue(issue));
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Обновляет задачи по одной, как {@link #updateIssue(int, Task)}, но пересчитывает статус каждого
+     * затронутого эпика один раз в конце. Задачи проверяются до обновления, поэтому при ошибке менеджер не изменяется.
+     *
+     * @param issues новые версии задач по идентификатору
+     * @return обновлённые задачи в порядке обхода карты
+     * @throws IllegalArgumentException если какая-либо задача не найдена
+     */
+    @Override
+    public <T extends Task> List<T> updateIssues(Map<Integer, T> issues) {
+        issues.forEach((id, issue) -> {
+            if (findIssue(id, issue.getClass()) == null) {
+                throw new IllegalArgumentException("Задача с таким идентификатором не найдена");
+            }
+        });
+        return inBatch(() -> {
+            List<T> updated = new ArrayList<>(issues.size());
+            issues.forEach((id, issue) -> updated.add(updateIssue(id, issue)));
+            return updated;
+        });
+    }
+
+    /**
+     * Удаляет задачи по одной, как {@link #removeIssueById(int, String)}, но пересчитывает статус каждого
+     * затронутого эпика один раз в конце. Повторяющиеся идентификаторы удаляются один раз.
+     * Задачи проверяются до удаления, поэтому при ошибке менеджер не изменяется.
+     *
+     * @param issueType тип задач ("Task", "Subtask", "Epic")
+     * @param ids       идентификаторы удаляемых задач
+     * @throws IllegalArgumentException если какая-либо задача не найдена
+     */
+    @Override
+    public void removeIssues(String issueType, Collection<Integer> ids) {
+        IntArraySet removedIds = new IntArraySet(ids.size());
+        for (Integer id : ids) {
+            if (!tasksList.get(issueType).containsKey(id)) {
+                throw new IllegalArgumentException("Задача с таким идентификатором не найдена");
+            }
+            removedIds.addInt(id);
+        }
+        inBatch(() -> {
+            removedIds.forEachInt(id -> removeIssueById(id, issueType));
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет пакетную операцию, откладывая пересчёт статусов эпиков до её конца.
+     * Статусы пересчитываются и при ошибке посреди операции, чтобы не расходиться с подзадачами.
+     */
+    private <R> R inBatch(Supplier<R> batch) {
+        if (deferredEpics.get() != null) {
+            return batch.get();
+        }
+        IntArraySet touchedEpics = new IntArraySet();
+        deferredEpics.set(touchedEpics);
+        try {
+            return batch.get();
+        } finally {
+            deferredEpics.remove();
+            touchedEpics.forEachInt(epicId -> {
+                if (tasksList.get("Epic").containsKey(epicId)) {
+                    updateEpicStatus(epicId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Пересчитывает статус эпика сразу или, внутри пакетной операции, в её конце.
+     */
+    private void touchEpic(int id) {
+        IntArraySet touchedEpics = deferredEpics.get();
+        if (touchedEpics != null) {
+            touchedEpics.addInt(id);
+        } else {
+            updateEpicStatus(id);
+        }
+    }
+
+    /**
+     * Выполняет блок изменений, записывая для каждого изменения отменяющее действие. При исключении
+     * действия выполняются в обратном порядке: добавленные задачи удаляются, прежние название, описание и статус
+     * возвращаются, удалённые задачи загружаются обратно с теми же идентификаторами (см. {@link #loadIssues(Collection)}).
+     * После отката внешней транзакции счётчики идентификаторов возвращаются к исходным значениям.
+     * <p>
+     * Откатываются изменения, сделанные методами {@link TaskManager}; {@link #loadIssues(Collection)} в журнал отмены
+     * не попадает.
+     *
+     * @param work блок изменений; получает этот менеджер
+     */
+    @Override
+    public void transaction(Consumer<TaskManager> work) {
+        boolean outermost = undoLog == null;
+        int[] counters = null;
+        if (outermost) {
+            undoLog = new ArrayDeque<>();
+            counters = new int[]{taskIdCounter.get(), subtaskIdCounter.get(), epicIdCounter.get()};
+        }
+        int mark = undoLog.size();
+        try {
+            work.accept(this);
+        } catch (RuntimeException | Error e) {
+            rollback(mark, e);
+            if (outermost) {
+                taskIdCounter.set(counters[0]);
+                subtaskIdCounter.set(counters[1]);
+                epicIdCounter.set(counters[2]);
+            }
+            throw e;
+        } finally {
+            if (outermost) {
+                undoLog = null;
+            }
+        }
+    }
+
+    /**
+     * Выполняет отменяющие действия, записанные после отметки {@code mark}, в обратном порядке.
+     * Ошибки отката добавляются к исходному исключению как подавленные.
+     */
+    private void rollback(int mark, Throwable cause) {
+        Deque<Runnable> log = undoLog;
+        undoLog = null;
+        try {
+            while (log.size() > mark) {
+                try {
+                    log.pop().run();
+                } catch (RuntimeException e) {
+                    cause.addSuppressed(e);
+                }
+            }
+        } finally {
+            undoLog = log;
+        }
+    }
+
+    private void logUndo(Runnable undo) {
+        if (undoLog != null) {
+            undoLog.push(undo);
+        }
+    }
+
+    /**
+     * Копирует название, описание, статус и идентификатор задачи в новый объект того же типа.
+     */
+    private static Task copyOf(Task issue) {
+        Task copy;
+        if (issue instanceof Subtask subtask) {
+            copy = new Subtask(subtask.getSummary(), subtask.getDescription(), subtask.getEpicId());
+        } else if (issue instanceof Epic) {
+            copy = new Epic(issue.getSummary(), issue.getDescription());
+        } else {
+            copy = new Task(issue.getSummary(), issue.getDescription());
+        }
+        copy.setId(issue.getId());
+        copy.setStatus(issue.getStatus());
+        return copy;
+    }
+
+    /**
+     * Обновляет статус эпика по счётчикам статусов его подзадач за O(1).
+     * <p>
+     * Если включена сверка ({@link #setEpicStatusVerification(boolean)}), результат
+     * дополнительно сравнивается с полным пересчётом по подзадачам.
+     *
+     * @param id идентификатор эпика, для которого нужно обновить статус
+     * @throws IllegalStateException если сверка включена и счётчики расходятся с пересчётом
+     */
+    private void updateEpicStatus(int id) {
+        Epic issue = findIssue(id, Epic.class);
+        changeStatus("Epic", issue, epicSubtasksIndex.get(id).getStatus());
+        if (epicStatusVerification) {
+            Status expected = calculateEpicStatus(issue);
+            if (issue.getStatus() != expected) {
+                throw new IllegalStateException(String.format(
+                        "Статус эпика %d по счётчикам (%s) не совпадает с пересчётом (%s)",
+                        id, issue.getStatus(), expected));
+            }
+        }
+    }
+
+    /**
+     * Вычисляет статус эпика полным обходом его подзадач.
      * <p>
-     * Если у эпика нет подзадач, его статус устанавливается в {@code NEW}.
+     * Если у эпика нет подзадач, его статус {@code NEW}.
      * Иначе, метод подсчитывает количество подзадач со статусами {@code NEW} и {@code DONE},
      * и на основе этого определяет общий статус эпика:
      * - все подзадачи NEW → статус эпика NEW;
      * - все подзадачи DONE → статус эпика DONE;
      * - иначе → статус эпика IN_PROGRESS.
      *
-     * @param id идентификатор эпика, для которого нужно обновить статус
+     * @param issue эпик, для которого нужно вычислить статус
+     * @return вычисленный статус
      */
-    private void updateEpicStatus(int id) {
-        Epic issue = getIssueByClass(id, Epic.class);
+    private Status calculateEpicStatus(Epic issue) {
         if (issue.getSubtasks().isEmpty()) {
-            issue.setStatus(Status.NEW);
-            return;
+            return Status.NEW;
         }
 
         int subtasksNewStatus = 0;
         int subtasksDoneStatus = 0;
-        int totalSubtasks = issue.getSubtasks().size();
+        IntArraySet subtasks = issue.getSubtasks();
+        int totalSubtasks = subtasks.size();
 
-        for (int subtaskId : issue.getSubtasks()) {
-            Subtask subtask = getIssueByClass(subtaskId, Subtask.class);
+        for (int i = 0; i < totalSubtasks; i++) {
+            Subtask subtask = findIssue(subtasks.getInt(i), Subtask.class);
             if (subtask.getStatus() == Status.NEW) {
                 subtasksNewStatus++;
             } else if (subtask.getStatus() == Status.DONE) {
@@ -141,12 +522,21 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
         }
 
         if (subtasksNewStatus == totalSubtasks) {
-            issue.setStatus(Status.NEW);
+            return Status.NEW;
         } else if (subtasksDoneStatus == totalSubtasks) {
-            issue.setStatus(Status.DONE);
-        } else {
-            issue.setStatus(Status.IN_PROGRESS);
+            return Status.DONE;
         }
+        return Status.IN_PROGRESS;
+    }
+
+    /**
+     * Включает или выключает сверку счётчиков статусов эпиков с полным пересчётом
+     * при каждом изменении. Предназначено для тестов и отладки: сверка стоит O(число подзадач).
+     *
+     * @param epicStatusVerification {@code true}, чтобы включить сверку
+     */
+    public void setEpicStatusVerification(boolean epicStatusVerification) {
+        this.epicStatusVerification = epicStatusVerification;
     }
 
     /**
@@ -157,13 +547,47 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
      */
     @Override
     public <T extends Task> List<T> getIssuesList(String issueType, Class<T> type) {
-        List<T> list = new ArrayList<>();
-        tasksList.get(issueType).forEach(issue -> {
+        IntObjectHashMap<Task> issues = tasksList.get(issueType);
+        List<T> list = new ArrayList<>(issues.size());
+        issues.values().forEach(issue -> {
             list.add(type.cast(issue));
         });
         return list;
     }
 
+    /**
+     * Возвращает страницу списка задач указанного типа в порядке добавления.
+     *
+     * @param issueType Тип задач (Task, Subtask, Epic).
+     * @param type      Класс задач.
+     * @param offset    Количество пропускаемых задач.
+     * @param limit     Максимальный размер страницы.
+     * @return Список задач страницы.
+     * @throws IllegalArgumentException если {@code offset} или {@code limit} отрицательны
+     */
+    @Override
+    public <T extends Task> List<T> getIssuesList(String issueType, Class<T> type, int offset, int limit) {
+        List<Task> page = tasksList.get(issueType).values(offset, limit);
+        List<T> list = new ArrayList<>(page.size());
+        page.forEach(issue -> list.add(type.cast(issue)));
+        return list;
+    }
+
+    /**
+     * Возвращает ленивый поток задач указанного типа в порядке добавления, без копирования хранилища.
+     * Поток можно сделать параллельным. Обход слабо согласован: изменения хранилища во время обхода
+     * не приводят к ошибкам, задачи, добавленные после создания потока, в него не попадают,
+     * а удалённые могут быть пропущены.
+     *
+     * @param issueType Тип задач (Task, Subtask, Epic).
+     * @param type      Класс задач.
+     * @return Поток задач.
+     */
+    @Override
+    public <T extends Task> Stream<T> streamIssues(String issueType, Class<T> type) {
+        return StreamSupport.stream(tasksList.get(issueType).valuesSpliterator(), false).map(type::cast);
+    }
+
     /**
      * Очищает список задач указанного типа.
      *
@@ -171,29 +595,35 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
      */
     @Override
     public void clearIssuesList(String issueType) {
-        switch (issueType) {
-            case "Task" -> getIssuesList(issueType, Task.class).forEach(issue -> historyManager.remove(issue));
-            case "Subtask" -> getIssuesList(issueType, Subtask.class).forEach(issue -> historyManager.remove(issue));
-            case "Epic" -> getIssuesList(issueType, Epic.class).forEach(issue -> {
-                issue.getSubtasks().forEach(subtaskId -> {
-                    if (getIssueById(subtaskId, "Subtask") != null) {
-                        historyManager.remove(getIssueById(subtaskId, "Subtask"));
-                    }
-                });
-                historyManager.remove(issue);
-            });
+        if (undoLog != null) {
+            List<Task> cleared = new ArrayList<>(tasksList.get(issueType).values());
+            if (issueType.equals("Epic")) {
+                cleared.addAll(tasksList.get("Subtask").values());
+            }
+            logUndo(() -> loadIssues(cleared));
         }
+        tasksList.get(issueType).values().forEach(issue -> historyManager.remove(issue));
         if (issueType.equals("Subtask")) {
-            for (int i = 0; i < tasksList.get("Epic").size(); i++) {
-                Epic epic = Epic.class.cast(tasksList.get("Epic").get(i));
+            for (Task issue : tasksList.get("Epic").values()) {
+                Epic epic = Epic.class.cast(issue);
                 epic.getSubtasks().clear();
+                epicSubtasksIndex.get(epic.getId()).clear();
+                touch("Epic", epic);
                 updateEpicStatus(epic.getId());
             }
         }
         if (issueType.equals("Epic")) {
+            tasksList.get("Subtask").values().forEach(issue -> historyManager.remove(issue));
             tasksList.get("Subtask").clear();
+            epicSubtasksIndex.clear();
+            statusIndex.get("Subtask").values().forEach(IntArraySet::clear);
+            searchIndex.get("Subtask").clear();
+            touch("Subtask", null);
         }
         tasksList.get(issueType).clear();
+        statusIndex.get(issueType).values().forEach(IntArraySet::clear);
+        searchIndex.get(issueType).clear();
+        touch(issueType, null);
     }
 
     /**
@@ -224,21 +654,16 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
     }
 
     /**
-     * Возвращает элемент по его идентификатору из списка, полученного через {@code getIssuesList}.
+     * Возвращает элемент по его идентификатору и записывает его в историю просмотров.
      *
      * @param <T>  Тип элемента, расширяющий класс Task
      * @param id   Идентификатор элемента
      * @param type Класс типа T, используемый для параметризации
-     * @return Найденный элемент типа T или null, если элемент не найден
+     * @return Найденный элемент типа T
+     * @throws IllegalArgumentException если элемент не найден
      */
     private <T extends Task> T getIssueByClass(int id, Class<T> type) {
-        T issue = null;
-
-        for (T i : getIssuesList(type.getSimpleName(), type)) {
-            if (i.getId() == id) {
-                issue = i;
-            }
-        }
+        T issue = findIssue(id, type);
         if (issue == null) {
             throw new IllegalArgumentException("Задача с таким идентификатором не найдена");
         }
@@ -246,6 +671,17 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
         return issue;
     }
 
+    /**
+     * Ищет элемент в хранилище по типу и идентификатору за O(1), не затрагивая историю просмотров.
+     *
+     * @param id   Идентификатор элемента
+     * @param type Класс типа T
+     * @return Найденный элемент или null, если элемента нет
+     */
+    private <T extends Task> T findIssue(int id, Class<T> type) {
+        return type.cast(tasksList.get(type.getSimpleName()).get(id));
+    }
+
     /**
      * Выводит информацию о задачах определенного типа.
      *
@@ -253,9 +689,9 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
      */
     @Override
     public void printIssues(String issueType) {
-        for (Object issue : tasksList.get(issueType)) {
+        for (Task issue : tasksList.get(issueType).values()) {
             switch (issueType) {
-                case "Task" -> printIssue((Task) issue);
+                case "Task" -> printIssue(issue);
                 case "Subtask" -> printIssue((Subtask) issue);
                 case "Epic" -> printIssue((Epic) issue);
             }
@@ -285,17 +721,42 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
      */
     @Override
     public void removeIssueById(int id, String issueType) {
+        List<Task> removed = undoLog != null ? removedWith(id, issueType) : null;
         if (issueType.equals("Subtask")) {
-            int parentId = Subtask.class.cast(getIssueById(id, issueType)).getEpicId();
-            getIssueByClass(parentId, Epic.class).getSubtasks().removeIf(i -> i == id);
-            updateEpicStatus(parentId);
+            Subtask subtask = getIssueById(id, issueType);
+            int parentId = subtask.getEpicId();
+            Epic parentEpic = findIssue(parentId, Epic.class);
+            parentEpic.getSubtasks().removeInt(id);
+            touch("Epic", parentEpic);
+            epicSubtasksIndex.get(parentId).remove(id, subtask.getStatus());
+            touchEpic(parentId);
         }
         if (issueType.equals("Epic")) {
-            for (int subtaskId : getIssueByClass(id, Epic.class).getSubtasks()) {
-                removeIssue(subtaskId, "Subtask");
+            IntArraySet subtasks = getIssueByClass(id, Epic.class).getSubtasks();
+            for (int i = 0; i < subtasks.size(); i++) {
+                removeIssue(subtasks.getInt(i), "Subtask");
             }
+            epicSubtasksIndex.remove(id);
         }
         removeIssue(id, issueType);
+        if (removed != null) {
+            logUndo(() -> loadIssues(removed));
+        }
+    }
+
+    /**
+     * Возвращает задачу, удаляемую {@link #removeIssueById(int, String)}, вместе с подзадачами эпика.
+     */
+    private List<Task> removedWith(int id, String issueType) {
+        List<Task> removed = new ArrayList<>();
+        Task issue = tasksList.get(issueType).get(id);
+        if (issue != null) {
+            removed.add(issue);
+            if (issue instanceof Epic epic) {
+                removed.addAll(collectIssues(epic.getSubtasks(), Subtask.class));
+            }
+        }
+        return removed;
     }
 
     @Override
@@ -304,34 +765,90 @@ public class InMemoryTaskManager<T extends Task> implements TaskManager {
     }
 
     private void removeIssue(int id, String issueType) {
-        historyManager.remove(getIssueById(id, issueType));
-        tasksList.get(issueType).removeIf(issue -> {
-            if (issue instanceof Task) {
-                return ((Task) issue).getId() == id;
-            } else if (issue instanceof Subtask) {
-                return ((Subtask) issue).getId() == id;
-            } else {
-                return ((Epic) issue).getId() == id;
-            }
-        });
+        Task issue = tasksList.get(issueType).remove(id);
+        if (issue == null) {
+            throw new IllegalArgumentException("Задача с таким идентификатором не найдена");
+        }
+        statusIndex.get(issueType).get(issue.getStatus()).removeInt(id);
+        searchIndex.get(issueType).remove(id, issue.getSummary(), issue.getDescription());
+        historyManager.remove(issue);
+        touch(issueType, null);
+    }
+
+    /**
+     * Возвращает задачи указанного типа с указанным статусом, используя индекс по статусам.
+     *
+     * @param issueType тип задач (Task, Subtask, Epic)
+     * @param status    статус, по которому выполняется отбор
+     * @param type      класс задач
+     * @return список задач с указанным статусом
+     */
+    @Override
+    public <T extends Task> List<T> getIssuesByStatus(String issueType, Status status, Class<T> type) {
+        return collectIssues(statusIndex.get(issueType).get(status), type);
+    }
+
+    /**
+     * Возвращает подзадачи эпика, используя индекс подзадач по родительскому эпику.
+     *
+     * @param epicId идентификатор эпика
+     * @param status статус, по которому выполняется отбор, или {@code null} для всех подзадач эпика
+     * @return список подзадач эпика
+     * @throws IllegalArgumentException если эпик с указанным id не найден
+     */
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId, Status status) {
+        EpicSubtaskIndex index = epicSubtasksIndex.get(epicId);
+        if (index == null) {
+            throw new IllegalArgumentException("Задача с таким идентификатором не найдена");
+        }
+        if (status != null) {
+            return collectIssues(index.getSubtasks(status), Subtask.class);
+        }
+        return collectIssues(findIssue(epicId, Epic.class).getSubtasks(), Subtask.class);
     }
 
-    private int incTaskIdCounter() {
-        this.taskIdCounter++;
-        return this.taskIdCounter;
+    /**
+     * Ищет задачи всех типов по словам из названия и описания, используя полнотекстовый индекс.
+     * Задача попадает в результат, если содержит все слова запроса без учёта регистра;
+     * слово с {@code *} на конце ищется как префикс.
+     *
+     * @param query строка запроса, например {@code "отчёт квартал*"}
+     * @return найденные задачи: сначала Task, затем Subtask, затем Epic
+     */
+    @Override
+    public List<Task> search(String query) {
+        List<Task> list = new ArrayList<>();
+        tasksList.keySet().forEach(issueType -> list.addAll(
+                collectIssues(searchIndex.get(issueType).search(query), typeOf(issueType))));
+        return list;
     }
 
-    private int incSubtaskIdCounter() {
-        this.subtaskIdCounter++;
-        return this.subtaskIdCounter;
+    private static Class<? extends Task> typeOf(String issueType) {
+        return switch (issueType) {
+            case "Subtask" -> Subtask.class;
+            case "Epic" -> Epic.class;
+            default -> Task.class;
+        };
     }
 
-    private int incEpicIdCounter() {
-        this.epicIdCounter++;
-        return this.epicIdCounter;
+    private <T extends Task> List<T> collectIssues(IntArraySet ids, Class<T> type) {
+        IntObjectHashMap<Task> issues = tasksList.get(type.getSimpleName());
+        List<T> list = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            list.add(type.cast(issues.get(ids.getInt(i))));
+        }
+        return list;
     }
 
-    public Map<String, List<Object>> getTasksList() {
-        return tasksList;
+    /**
+     * Возвращает представление всех задач, разбитое по типам, доступное только для чтения.
+     *
+     * @return карта: тип задачи -> (идентификатор -> задача)
+     */
+    public Map<String, Map<Integer, Task>> getTasksList() {
+        Map<String, Map<Integer, Task>> view = new LinkedHashMap<>();
+        tasksList.forEach((issueType, issues) -> view.put(issueType, Collections.unmodifiableMap(issues)));
+        return Collections.unmodifiableMap(view);
     }
 }
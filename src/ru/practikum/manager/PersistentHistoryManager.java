@@ -0,0 +1,332 @@
+package ru.practikum.manager;
+
+import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.task.IssueType;
+import ru.practikum.task.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * История просмотров, сохраняемая в файл-кольцо: каждый просмотр — запись фиксированного размера
+ * (тип, id), которая пишется по смещению {@code HEADER_SIZE + (номер записи % ёмкость) * RECORD_SIZE},
+ * поэтому файл не растёт, а новые просмотры затирают самые давние. История в памяти ведётся
+ * обёрнутым {@link HistoryManager}.
+ * <p>
+ * Просмотры копятся в буфере и записываются на диск пачкой, когда буфер заполнен, по таймеру
+ * и при закрытии, поэтому {@code getIssueById} не обращается к диску. Номер следующей записи
+ * хранится в заголовке и обновляется после записи пачки; при сбое теряется только несохранённая пачка.
+ * <p>
+ * Разметка файла (числа — big-endian):
+ * <pre>
+ * заголовок, 32 байта: magic (int) | версия (short) | размер записи (short) | ёмкость кольца (int) | резерв (int) |
+ *                      номер следующей записи (long) | резерв (long)
+ * запись, 8 байт:      тип задачи (byte) | резерв (3 байта) | id (int)
+ * </pre>
+ * При запуске ({@link #restore(TaskManager)}) записи кольца воспроизводятся от самой давней к последней;
+ * просмотры задач, которых больше нет, пропускаются. Удаления из истории в файл не пишутся:
+ * удалённая задача при восстановлении просто не находится. Просмотры начинают записываться в файл
+ * только после восстановления, чтобы задачи, добавленные в историю при загрузке (например, при воспроизведении
+ * журнала), не вытеснили сохранённые просмотры. Поэтому и поток фоновой записи запускается при восстановлении,
+ * а не в конструкторе.
+ */
+public class PersistentHistoryManager implements HistoryManager, AutoCloseable {
+
+    static final int MAGIC = 0x4B485331;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final short RECORD_SIZE = 8;
+
+    public static final int DEFAULT_RING_CAPACITY = 4096;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final HistoryManager historyManager;
+    private final String fileName;
+    private final FileChannel channel;
+    private final int ringCapacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Номер следующей записи кольца, учитывая ещё не записанные просмотры.
+     */
+    private long sequence;
+
+    /**
+     * Просмотры, ещё не записанные на диск: тип в старших 32 битах, id — в младших.
+     */
+    private final long[] pending;
+    private int pendingCount;
+    private long flushCount;
+    private boolean restored;
+
+    public PersistentHistoryManager(HistoryManager historyManager, String fileName) throws ManagerSaveException {
+        this(historyManager, fileName, DEFAULT_RING_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param historyManager      история в памяти, например {@link InMemoryHistoryManager}
+     * @param fileName            файл-кольцо просмотров
+     * @param ringCapacity        количество записей в кольце нового файла; у существующего файла берётся из заголовка
+     * @param batchSize           количество просмотров, при накоплении которого они записываются на диск
+     * @param flushIntervalMillis период фоновой записи накопленных просмотров после {@link #restore(TaskManager)}
+     *                            или 0 без фоновой записи
+     * @throws ManagerSaveException     если файл не удалось открыть или он имеет другой формат
+     * @throws IllegalArgumentException если параметры некорректны
+     */
+    public PersistentHistoryManager(HistoryManager historyManager, String fileName, int ringCapacity, int batchSize,
+                                    long flushIntervalMillis) throws ManagerSaveException {
+        if (ringCapacity < 1 || batchSize < 1 || batchSize > ringCapacity) {
+            throw new IllegalArgumentException("Размер пачки должен быть от 1 до ёмкости кольца");
+        }
+        if (flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("Период записи не может быть отрицательным");
+        }
+        this.historyManager = historyManager;
+        this.fileName = fileName;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.pending = new long[batchSize];
+        try {
+            channel = FileChannel.open(Path.of(fileName),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                this.ringCapacity = ringCapacity;
+                writeHeader();
+            } else {
+                ByteBuffer header = read(0, HEADER_SIZE);
+                if (header.getInt(0) != MAGIC || header.getShort(6) != RECORD_SIZE || header.getInt(8) < 1) {
+                    channel.close();
+                    throw new ManagerSaveException("Файл не является файлом истории просмотров: " + fileName);
+                }
+                if (header.getShort(4) != VERSION) {
+                    channel.close();
+                    throw new ManagerSaveException("Неподдерживаемая версия файла истории просмотров: " + fileName);
+                }
+                this.ringCapacity = header.getInt(8);
+                this.sequence = header.getLong(16);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    /**
+     * Заменяет историю в памяти историей из записей кольца, включает запись просмотров в файл
+     * и запускает фоновую запись. Задачи ищутся в списках менеджера без записи в историю.
+     *
+     * @param manager менеджер с уже загруженными задачами
+     * @throws ManagerSaveException если файл не удалось прочитать
+     */
+    public synchronized void restore(TaskManager manager) throws ManagerSaveException {
+        long durable = sequence - pendingCount;
+        int count = (int) Math.min(durable, ringCapacity);
+        ByteBuffer records;
+        try {
+            records = read(HEADER_SIZE, ringCapacity * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        for (Task issue : historyManager.<Task>getHistory().values()) {
+            historyManager.remove(issue);
+        }
+        Map<String, Map<Integer, Task>> tasksList = manager.getTasksList();
+        IssueType[] types = IssueType.values();
+        for (long record = durable - count; record < durable; record++) {
+            int offset = (int) (record % ringCapacity) * RECORD_SIZE;
+            int type = records.get(offset);
+            if (type < 0 || type >= types.length) {
+                continue;
+            }
+            Task issue = tasksList.get(types[type].getName()).get(records.getInt(offset + 4));
+            if (issue != null) {
+                historyManager.addToHistory(issue);
+            }
+        }
+        restored = true;
+        startFlusher();
+    }
+
+    private void startFlusher() {
+        if (flushIntervalMillis == 0 || flusher != null || !channel.isOpen()) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "history-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (ManagerSaveException e) {
+                System.out.println(e.getMessage());
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Добавляет задачу в историю и в буфер просмотров. Если буфер заполнен, он записывается на диск;
+     * ошибка записи выводится на экран, история в памяти остаётся.
+     */
+    @Override
+    public <T extends Task> void addToHistory(T issue) {
+        historyManager.addToHistory(issue);
+        if (issue == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!restored) {
+                return;
+            }
+            if (pendingCount == pending.length) {
+                // предыдущая запись не удалась: просмотр остаётся только в памяти до успешной записи
+                return;
+            }
+            pending[pendingCount++] = ((long) IssueType.of(issue).ordinal() << 32) | (issue.getId() & 0xFFFFFFFFL);
+            sequence++;
+            if (pendingCount == batchSize) {
+                try {
+                    flush();
+                } catch (ManagerSaveException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public <T extends Task> Map<String, T> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public <T extends Task> void remove(T issue) {
+        historyManager.remove(issue);
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return historyManager.getEvictionCount();
+    }
+
+    /**
+     * Записывает накопленные просмотры в кольцо, затем обновляет номер следующей записи в заголовке.
+     *
+     * @throws ManagerSaveException если запись не удалась; просмотры остаются в буфере
+     */
+    public synchronized void flush() throws ManagerSaveException {
+        if (pendingCount == 0) {
+            return;
+        }
+        try {
+            long first = sequence - pendingCount;
+            int written = 0;
+            while (written < pendingCount) {
+                int slot = (int) ((first + written) % ringCapacity);
+                int length = Math.min(pendingCount - written, ringCapacity - slot);
+                ByteBuffer records = ByteBuffer.allocate(length * RECORD_SIZE);
+                for (int i = 0; i < length; i++) {
+                    long key = pending[written + i];
+                    records.put((byte) (key >>> 32)).put((byte) 0).putShort((short) 0).putInt((int) key);
+                }
+                write(records.flip(), HEADER_SIZE + (long) slot * RECORD_SIZE);
+                written += length;
+            }
+            writeHeader();
+            pendingCount = 0;
+            flushCount++;
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort(RECORD_SIZE).putInt(ringCapacity).putInt(0)
+                .putLong(sequence).putLong(0);
+        write(header.flip(), 0);
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.clear();
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getRingCapacity() {
+        return ringCapacity;
+    }
+
+    /**
+     * Возвращает количество записей пачек на диск с момента открытия файла.
+     */
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Возвращает количество просмотров, ещё не записанных на диск.
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Останавливает фоновую запись, записывает накопленные просмотры и закрывает файл.
+     */
+    @Override
+    public void close() throws ManagerSaveException {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = flusher;
+            flusher = null;
+        }
+        if (stopping != null) {
+            // ожидание вне блокировки: фоновая запись сама берёт её в flush()
+            stopping.shutdown();
+            try {
+                stopping.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+    }
+}
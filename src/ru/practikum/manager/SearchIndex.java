@@ -0,0 +1,121 @@
+package ru.practikum.manager;
+
+import ru.practikum.utils.IntArraySet;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Инвертированный индекс по словам названия и описания задач одного типа.
+ * <p>
+ * Текст разбивается на слова из букв и цифр, слова приводятся к нижнему регистру,
+ * для каждого слова хранится множество идентификаторов задач (posting list).
+ * Словарь отсортирован, поэтому поиск по префиксу сводится к обходу диапазона слов.
+ * Индекс обновляется инкрементально при добавлении, изменении и удалении задач.
+ */
+class SearchIndex {
+
+    private final NavigableMap<String, IntArraySet> postings = new TreeMap<>();
+
+    /**
+     * Добавляет слова текстов в индекс для указанной задачи.
+     */
+    void add(int id, String... texts) {
+        for (String text : texts) {
+            forEachToken(text, false, (token) -> postings.computeIfAbsent(token, key -> new IntArraySet()).addInt(id));
+        }
+    }
+
+    /**
+     * Удаляет слова текстов из индекса для указанной задачи.
+     * Тексты должны совпадать с теми, что были переданы при добавлении.
+     */
+    void remove(int id, String... texts) {
+        for (String text : texts) {
+            forEachToken(text, false, (token) -> {
+                IntArraySet ids = postings.get(token);
+                if (ids != null && ids.removeInt(id) && ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            });
+        }
+    }
+
+    void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Ищет задачи, содержащие все слова запроса (логическое И).
+     * Слово, оканчивающееся на {@code *}, ищется как префикс: {@code "отч*"} найдёт «отчёт» и «отчётность».
+     *
+     * @param query строка запроса
+     * @return идентификаторы найденных задач; пустое множество, если в запросе нет слов
+     */
+    IntArraySet search(String query) {
+        List<IntArraySet> terms = new ArrayList<>();
+        boolean[] missing = new boolean[1];
+        forEachToken(query, true, (token) -> {
+            IntArraySet ids = token.endsWith("*") ? prefixPostings(token.substring(0, token.length() - 1))
+                    : postings.get(token);
+            if (ids == null || ids.isEmpty()) {
+                missing[0] = true;
+            } else {
+                terms.add(ids);
+            }
+        });
+        if (missing[0] || terms.isEmpty()) {
+            return new IntArraySet();
+        }
+        terms.sort(Comparator.comparingInt(IntArraySet::size));
+        IntArraySet smallest = terms.get(0);
+        IntArraySet result = new IntArraySet(smallest.size());
+        for (int i = 0; i < smallest.size(); i++) {
+            int id = smallest.getInt(i);
+            boolean matches = true;
+            for (int j = 1; j < terms.size() && matches; j++) {
+                matches = terms.get(j).containsInt(id);
+            }
+            if (matches) {
+                result.addInt(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Объединяет списки идентификаторов всех слов с указанным префиксом.
+     */
+    private IntArraySet prefixPostings(String prefix) {
+        SortedMap<String, IntArraySet> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            return range.values().iterator().next();
+        }
+        IntArraySet union = new IntArraySet();
+        range.values().forEach(ids -> ids.forEachInt(union::addInt));
+        return union;
+    }
+
+    /**
+     * Разбивает текст на слова из букв и цифр, приведённые к нижнему регистру.
+     * В режиме запроса символ {@code *} сразу после слова сохраняется как признак префикса.
+     */
+    private static void forEachToken(String text, boolean query, Consumer<String> action) {
+        if (text == null) {
+            return;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (!token.isEmpty()) {
+                if (query && c == '*') {
+                    token.append(c);
+                }
+                action.accept(token.toString());
+                token.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practikum.manager;
+
+import ru.practikum.task.Task;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Потокобезопасная обёртка над {@link HistoryManager}.
+ * Все операции выполняются под общей блокировкой, история возвращается копией.
+ */
+public class SynchronizedHistoryManager implements HistoryManager {
+
+    private final HistoryManager historyManager;
+
+    public SynchronizedHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    @Override
+    public synchronized <T extends Task> void addToHistory(T issue) {
+        historyManager.addToHistory(issue);
+    }
+
+    @Override
+    public synchronized <T extends Task> Map<String, T> getHistory() {
+        return new LinkedHashMap<>(historyManager.getHistory());
+    }
+
+    @Override
+    public synchronized <T extends Task> void remove(T issue) {
+        historyManager.remove(issue);
+    }
+
+    @Override
+    public synchronized long getEvictionCount() {
+        return historyManager.getEvictionCount();
+    }
+}
@@ -1,17 +1,59 @@
 package ru.practikum.manager;
 
+import ru.practikum.task.Status;
+import ru.practikum.task.Subtask;
 import ru.practikum.task.Task;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface TaskManager {
     <T extends Task> int addIssue(T issue);
 
     <T extends Task> T updateIssue(int id, T issue);
 
+    /**
+     * Добавляет задачи одной операцией: статус каждого затронутого эпика пересчитывается один раз.
+     *
+     * @param issues задачи в порядке добавления
+     * @return идентификаторы добавленных задач в том же порядке
+     */
+    <T extends Task> List<Integer> addIssues(Collection<T> issues);
+
+    /**
+     * Обновляет задачи одной операцией: статус каждого затронутого эпика пересчитывается один раз.
+     *
+     * @param issues новые версии задач по идентификатору
+     * @return обновлённые задачи в порядке обхода карты
+     */
+    <T extends Task> List<T> updateIssues(Map<Integer, T> issues);
+
+    /**
+     * Удаляет задачи одного типа одной операцией: статус каждого затронутого эпика пересчитывается один раз.
+     *
+     * @param issueType тип задач ("Task", "Subtask", "Epic")
+     * @param ids       идентификаторы удаляемых задач
+     */
+    void removeIssues(String issueType, Collection<Integer> ids);
+
+    /**
+     * Выполняет изменения как одно целое: если блок завершается исключением, изменения, сделанные в нём,
+     * откатываются и исключение пробрасывается дальше. Вложенная транзакция при ошибке откатывает только
+     * свои изменения. История просмотров не откатывается.
+     *
+     * @param work блок изменений; получает менеджер, через который их нужно выполнять
+     */
+    void transaction(Consumer<TaskManager> work);
+
     <T extends Task> List<T> getIssuesList(String issueType, Class<T> type);
 
+    <T extends Task> List<T> getIssuesList(String issueType, Class<T> type, int offset, int limit);
+
+    <T extends Task> Stream<T> streamIssues(String issueType, Class<T> type);
+
     void clearIssuesList(String issueType);
 
     <T extends Task> T getIssueById(int id, String issueType);
@@ -24,5 +66,19 @@ public interface TaskManager {
 
     <T extends Task> Map<String, T> getHistory();
 
-    Map<String, List<Object>> getTasksList();
+    <T extends Task> List<T> getIssuesByStatus(String issueType, Status status, Class<T> type);
+
+    List<Subtask> getEpicSubtasks(int epicId, Status status);
+
+    List<Task> search(String query);
+
+    Map<String, Map<Integer, Task>> getTasksList();
+
+    /**
+     * Возвращает версию списка задач типа. Версия увеличивается при каждом изменении списка:
+     * добавлении, удалении или изменении любой его задачи, включая статус и список подзадач эпика.
+     *
+     * @param issueType тип задач ("Task", "Subtask", "Epic")
+     */
+    long getVersion(String issueType);
 }
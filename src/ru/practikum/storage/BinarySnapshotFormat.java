@@ -0,0 +1,224 @@
+package ru.practikum.storage;
+
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.*;
+import ru.practikum.utils.IntObjectHashMap;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Двоичный формат файла задач с фиксированной разметкой, читаемый через {@link MappedByteBuffer}.
+ * <p>
+ * Разметка файла (все числа — big-endian):
+ * <pre>
+ * заголовок, 16 байт:  magic (int) | версия (short) | размер записи таблицы (short) | количество задач (int) | смещение данных (int)
+ * таблица, 16 байт на задачу:  тип (byte) | статус (byte) | резерв (short) | id (int) | id эпика (int) | смещение строк (int)
+ * данные:  для каждой задачи длина и UTF-8 байты названия, затем длина и UTF-8 байты описания
+ * </pre>
+ * Задачи записываются в порядке: эпики, подзадачи, задачи. Связи эпиков с подзадачами не хранятся,
+ * они восстанавливаются по id эпика подзадачи, а статус эпика вычисляется заново.
+ * <p>
+ * Таблица позволяет построить индекс по идентификаторам и узнать тип, статус и эпик задачи,
+ * не разбирая ни одной строки, см. {@link MappedSnapshot}.
+ */
+public class BinarySnapshotFormat implements SnapshotFormat {
+
+    static final int MAGIC = 0x4B414E42;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final short RECORD_SIZE = 16;
+
+    private static final String[] TYPE_ORDER = {"Epic", "Subtask", "Task"};
+
+    @Override
+    public void write(Path path, Map<String, Map<Integer, Task>> tasksList) throws IOException {
+        int count = 0;
+        for (String issueType : TYPE_ORDER) {
+            count += tasksList.get(issueType).size();
+        }
+        int dataOffset = HEADER_SIZE + count * RECORD_SIZE;
+        ByteArrayOutputStream table = new ByteArrayOutputStream(count * RECORD_SIZE);
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream tableOut = new DataOutputStream(table);
+        DataOutputStream dataOut = new DataOutputStream(data);
+        for (String issueType : TYPE_ORDER) {
+            for (Task issue : tasksList.get(issueType).values()) {
+                tableOut.writeByte(IssueType.of(issue).ordinal());
+                tableOut.writeByte(issue.getStatus().ordinal());
+                tableOut.writeShort(0);
+                tableOut.writeInt(issue.getId());
+                tableOut.writeInt(issue instanceof Subtask subtask ? subtask.getEpicId() : 0);
+                tableOut.writeInt(dataOffset + dataOut.size());
+                writeString(dataOut, issue.getSummary());
+                writeString(dataOut, issue.getDescription());
+            }
+        }
+        if ((long) dataOffset + dataOut.size() > Integer.MAX_VALUE) {
+            throw new IOException("Файл задач превышает 2 ГБ");
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeShort(VERSION);
+            header.writeShort(RECORD_SIZE);
+            header.writeInt(count);
+            header.writeInt(dataOffset);
+            table.writeTo(out);
+            data.writeTo(out);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Читает задачи в порядке таблицы (эпики, подзадачи, задачи) и загружает их в менеджер одной пачкой
+     * (см. {@link IssueBatchLoader}): без записи в историю и с однократным пересчётом статусов эпиков.
+     */
+    @Override
+    public void read(Path path, TaskManager manager) throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.open(path);
+        List<Task> issues = new ArrayList<>(snapshot.size());
+        for (int record = 0; record < snapshot.size(); record++) {
+            issues.add(snapshot.getIssue(record));
+        }
+        IssueBatchLoader.load(manager, issues);
+    }
+
+    /**
+     * Файл задач в двоичном формате, отображённый в память.
+     * Поля задач читаются из отображения по номеру записи таблицы, строки декодируются только при обращении.
+     */
+    public static final class MappedSnapshot {
+
+        private final ByteBuffer buffer;
+        private final int count;
+        private Map<IssueType, IntObjectHashMap<Integer>> index;
+
+        private MappedSnapshot(ByteBuffer buffer) throws IOException {
+            this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Файл не является двоичным файлом задач");
+            }
+            if (buffer.getShort(4) != VERSION || buffer.getShort(6) != RECORD_SIZE) {
+                throw new IOException("Неподдерживаемая версия двоичного файла задач");
+            }
+            this.count = buffer.getInt(8);
+            if (count < 0 || HEADER_SIZE + (long) count * RECORD_SIZE > buffer.capacity()) {
+                throw new IOException("Таблица задач выходит за пределы файла");
+            }
+        }
+
+        /**
+         * Отображает файл в память и проверяет заголовок.
+         *
+         * @param path файл в двоичном формате
+         * @throws IOException если файл не удалось прочитать или он имеет другой формат
+         */
+        public static MappedSnapshot open(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Файл задач превышает 2 ГБ");
+                }
+                return new MappedSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        public int size() {
+            return count;
+        }
+
+        private int recordOffset(int record) {
+            if (record < 0 || record >= count) {
+                throw new IndexOutOfBoundsException("Нет записи с номером " + record);
+            }
+            return HEADER_SIZE + record * RECORD_SIZE;
+        }
+
+        public IssueType getType(int record) {
+            return IssueType.values()[buffer.get(recordOffset(record))];
+        }
+
+        public Status getStatus(int record) {
+            return Status.values()[buffer.get(recordOffset(record) + 1)];
+        }
+
+        public int getId(int record) {
+            return buffer.getInt(recordOffset(record) + 4);
+        }
+
+        public int getEpicId(int record) {
+            return buffer.getInt(recordOffset(record) + 8);
+        }
+
+        public String getSummary(int record) {
+            return readString(buffer.getInt(recordOffset(record) + 12));
+        }
+
+        public String getDescription(int record) {
+            int position = buffer.getInt(recordOffset(record) + 12);
+            return readString(position + 4 + buffer.getInt(position));
+        }
+
+        private String readString(int position) {
+            int length = buffer.getInt(position);
+            byte[] bytes = new byte[length];
+            buffer.get(position + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Создаёт задачу из записи таблицы.
+         *
+         * @param record номер записи
+         * @return задача соответствующего типа с идентификатором, статусом и строками из файла
+         */
+        public Task getIssue(int record) {
+            String summary = getSummary(record);
+            String description = getDescription(record);
+            Task issue = switch (getType(record)) {
+                case TASK -> new Task(summary, description, getStatus(record));
+                case SUBTASK -> new Subtask(summary, description, getEpicId(record));
+                case EPIC -> new Epic(summary, description);
+            };
+            issue.setId(getId(record));
+            issue.setStatus(getStatus(record));
+            return issue;
+        }
+
+        /**
+         * Ищет запись задачи по типу и идентификатору. При первом вызове строит индекс,
+         * читая только таблицу записей.
+         *
+         * @return номер записи или -1, если задачи нет
+         */
+        public int find(IssueType type, int id) {
+            if (index == null) {
+                index = new EnumMap<>(IssueType.class);
+                for (IssueType issueType : IssueType.values()) {
+                    index.put(issueType, new IntObjectHashMap<>());
+                }
+                for (int record = 0; record < count; record++) {
+                    index.get(getType(record)).put(getId(record), Integer.valueOf(record));
+                }
+            }
+            Integer record = index.get(type).get(id);
+            return record == null ? -1 : record;
+        }
+    }
+}
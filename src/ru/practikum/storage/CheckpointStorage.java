@@ -0,0 +1,407 @@
+package ru.practikum.storage;
+
+import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.manager.InMemoryTaskManager;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Task;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Двухуровневое хранилище: контрольная точка с состоянием всех задач и журнал изменений после неё.
+ * <p>
+ * Контрольная точка хранится в основном файле в формате {@link TaskLineFormat}, первая строка —
+ * заголовок {@code #checkpoint <номер>} с номером последнего вошедшего в неё журнала.
+ * Журналы хранятся рядом в файлах {@code <файл>.changelog.<номер>} в формате {@link JournalStorage}.
+ * <p>
+ * Когда срабатывает {@link CompactionTrigger}, текущий журнал закрывается, запись продолжается в новый,
+ * а фоновый поток сворачивает контрольную точку и закрытые журналы в новую контрольную точку.
+ * Сжатие читает только файлы и не обращается к менеджеру, поэтому не блокирует изменяющие операции.
+ * Новая контрольная точка записывается во временный файл и атомарно подменяет старую,
+ * после чего свёрнутые журналы удаляются. При запуске загружается контрольная точка
+ * и воспроизводятся только журналы с большими номерами.
+ */
+public class CheckpointStorage implements TaskStorage {
+
+    private static final String CHECKPOINT_HEADER = "#checkpoint ";
+    private static final String CHANGELOG_SUFFIX = ".changelog.";
+
+    private final String fileName;
+    private final Path checkpoint;
+    private final CompactionTrigger trigger;
+
+    /**
+     * Фоновый поток сжатия. Задачи сжатия выполняются по очереди.
+     */
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * Текущий журнал. Используется только потоком, вызывающим изменяющие операции.
+     */
+    private OutputStream changelog;
+    private long changelogSeq;
+    private long changelogRecords;
+    private long changelogBytes;
+    //записи текущей транзакции, ещё не дописанные в журнал; null вне транзакции
+    private List<String> transaction;
+
+    private volatile long checkpointBytes;
+    private final AtomicLong compactionCount = new AtomicLong();
+    private final AtomicLong totalCompactionMillis = new AtomicLong();
+    private volatile long lastCompactionMillis;
+    private volatile Exception lastCompactionError;
+
+    public CheckpointStorage(String fileName) {
+        this(fileName, new CompactionTrigger());
+    }
+
+    /**
+     * @param fileName имя файла контрольной точки
+     * @param trigger  условие запуска сжатия
+     */
+    public CheckpointStorage(String fileName, CompactionTrigger trigger) {
+        this.fileName = fileName;
+        this.checkpoint = Path.of(fileName).toAbsolutePath();
+        this.trigger = trigger;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Загружает контрольную точку и воспроизводит журналы после неё.
+     * Журналы, уже вошедшие в контрольную точку (остались после сбоя во время сжатия), удаляются.
+     * Отсутствующий файл означает пустой список задач.
+     */
+    @Override
+    public void load(TaskManager manager) throws ManagerSaveException {
+        try {
+            long checkpointSeq = readCheckpoint(manager);
+            checkpointBytes = Files.exists(checkpoint) ? Files.size(checkpoint) : 0;
+            changelogSeq = checkpointSeq + 1;
+            for (long seq : changelogSeqs()) {
+                Path segment = changelogPath(seq);
+                if (seq <= checkpointSeq) {
+                    Files.deleteIfExists(segment);
+                } else {
+                    JournalStorage.truncateTornRecord(segment);
+                    changelogRecords = JournalStorage.replay(segment, manager);
+                    changelogBytes = Files.size(segment);
+                    changelogSeq = seq;
+                }
+            }
+            changelog = openChangelog(changelogSeq);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    /**
+     * Загружает задачи из контрольной точки одной пачкой (см. {@link IssueBatchLoader}): без записи
+     * в историю просмотров и с однократным пересчётом статусов эпиков. Журналы после контрольной точки
+     * воспроизводятся по одной записи.
+     *
+     * @return номер последнего журнала, вошедшего в контрольную точку, или 0, если её нет
+     */
+    private long readCheckpoint(TaskManager manager) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        long seq = 0;
+        List<Task> issues = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(CHECKPOINT_HEADER)) {
+                    seq = Long.parseLong(line.substring(CHECKPOINT_HEADER.length()).trim());
+                } else if (!line.isEmpty()) {
+                    issues.add(TaskLineFormat.parse(line));
+                }
+            }
+        }
+        IssueBatchLoader.load(manager, issues);
+        return seq;
+    }
+
+    private Path changelogPath(long seq) {
+        return checkpoint.resolveSibling(checkpoint.getFileName() + CHANGELOG_SUFFIX + seq);
+    }
+
+    /**
+     * Возвращает номера существующих журналов по возрастанию.
+     */
+    private List<Long> changelogSeqs() throws IOException {
+        String prefix = checkpoint.getFileName() + CHANGELOG_SUFFIX;
+        List<Long> seqs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(checkpoint.getParent())) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix))
+                    .forEach(name -> {
+                        try {
+                            seqs.add(Long.parseLong(name.substring(prefix.length())));
+                        } catch (NumberFormatException e) {
+                            // посторонний файл с похожим именем
+                        }
+                    });
+        }
+        seqs.sort(null);
+        return seqs;
+    }
+
+    private OutputStream openChangelog(long seq) throws IOException {
+        return new BufferedOutputStream(Files.newOutputStream(changelogPath(seq),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Дописывает запись в текущий журнал и при срабатывании условия запускает фоновое сжатие.
+     */
+    protected void append(String record) throws ManagerSaveException {
+        append(List.of(record));
+    }
+
+    /**
+     * Дописывает несколько записей в текущий журнал одной строкой (записью {@code T} журнала)
+     * и одной записью в файл.
+     */
+    protected void append(List<String> records) throws ManagerSaveException {
+        if (records.isEmpty()) {
+            return;
+        }
+        String line = records.size() == 1 ? records.get(0) : JournalStorage.transactionRecord(records);
+        byte[] bytes = (line + '\n').getBytes(StandardCharsets.UTF_8);
+        try {
+            changelog.write(bytes);
+            changelog.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        changelogRecords += records.size();
+        changelogBytes += bytes.length;
+        if (trigger.shouldCompact(changelogRecords, changelogBytes, checkpointBytes)
+                && compacting.compareAndSet(false, true)) {
+            submitCompaction();
+        }
+    }
+
+    /**
+     * Закрывает текущий журнал, открывает следующий и ставит сжатие закрытого журнала в очередь.
+     */
+    private Future<?> submitCompaction() throws ManagerSaveException {
+        long sealedSeq = changelogSeq;
+        try {
+            changelog.close();
+            changelog = openChangelog(++changelogSeq);
+        } catch (IOException e) {
+            compacting.set(false);
+            throw new ManagerSaveException(e.getMessage());
+        }
+        changelogRecords = 0;
+        changelogBytes = 0;
+        return compactor.submit(() -> {
+            try {
+                compact(sealedSeq);
+            } catch (Exception e) {
+                lastCompactionError = e;
+                System.out.println("Не удалось сжать журнал изменений: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    /**
+     * Сворачивает контрольную точку и журналы с номерами до {@code sealedSeq} включительно в новую контрольную точку.
+     */
+    private void compact(long sealedSeq) throws IOException {
+        long start = System.nanoTime();
+        TaskManager scratch = new InMemoryTaskManager<Task>();
+        long checkpointSeq = readCheckpoint(scratch);
+        List<Path> folded = new ArrayList<>();
+        for (long seq : changelogSeqs()) {
+            if (seq > checkpointSeq && seq <= sealedSeq) {
+                Path segment = changelogPath(seq);
+                JournalStorage.replay(segment, scratch);
+                folded.add(segment);
+            }
+        }
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(CHECKPOINT_HEADER + sealedSeq + '\n');
+            TaskLineFormat.writeSnapshot(writer, scratch.getTasksList());
+        }
+        try {
+            Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+        }
+        checkpointBytes = Files.size(checkpoint);
+        for (Path segment : folded) {
+            Files.deleteIfExists(segment);
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastCompactionMillis = millis;
+        totalCompactionMillis.addAndGet(millis);
+        compactionCount.incrementAndGet();
+    }
+
+    /**
+     * Запускает сжатие независимо от условия и ждёт его завершения.
+     *
+     * @throws ManagerSaveException если сжатие не удалось
+     */
+    public void compact() throws ManagerSaveException {
+        compacting.set(true);
+        Future<?> compaction = submitCompaction();
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание сжатия прервано");
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException(e.getCause().getMessage());
+        }
+        Exception error = lastCompactionError;
+        if (error != null) {
+            lastCompactionError = null;
+            throw new ManagerSaveException(error.getMessage());
+        }
+    }
+
+    /**
+     * Возвращает длительность последнего сжатия в миллисекундах.
+     */
+    public long getLastCompactionMillis() {
+        return lastCompactionMillis;
+    }
+
+    /**
+     * Возвращает суммарную длительность всех сжатий в миллисекундах.
+     */
+    public long getTotalCompactionMillis() {
+        return totalCompactionMillis.get();
+    }
+
+    /**
+     * Возвращает количество выполненных сжатий.
+     */
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+    /**
+     * Возвращает количество записей в текущем журнале.
+     */
+    public long getChangelogRecords() {
+        return changelogRecords;
+    }
+
+    private void log(String record) throws ManagerSaveException {
+        if (transaction != null) {
+            transaction.add(record);
+        } else {
+            append(record);
+        }
+    }
+
+    private void log(List<String> records) throws ManagerSaveException {
+        if (transaction != null) {
+            transaction.addAll(records);
+        } else {
+            append(records);
+        }
+    }
+
+    @Override
+    public void issueAdded(Task issue) throws ManagerSaveException {
+        log(JournalStorage.addRecord(issue));
+    }
+
+    @Override
+    public void issueUpdated(Task issue) throws ManagerSaveException {
+        log(JournalStorage.updateRecord(issue));
+    }
+
+    @Override
+    public void issueRemoved(String issueType, int id) throws ManagerSaveException {
+        log(JournalStorage.removeRecord(issueType, id));
+    }
+
+    @Override
+    public void issuesCleared(String issueType) throws ManagerSaveException {
+        log(JournalStorage.clearRecord(issueType));
+    }
+
+    @Override
+    public void issuesAdded(List<? extends Task> issues) throws ManagerSaveException {
+        log(JournalStorage.addRecords(issues));
+    }
+
+    @Override
+    public void issuesUpdated(List<? extends Task> issues) throws ManagerSaveException {
+        log(JournalStorage.updateRecords(issues));
+    }
+
+    @Override
+    public void issuesRemoved(String issueType, Collection<Integer> ids) throws ManagerSaveException {
+        log(JournalStorage.removeRecords(issueType, ids));
+    }
+
+    @Override
+    public void beginTransaction() {
+        transaction = new ArrayList<>();
+    }
+
+    /**
+     * Дописывает записи транзакции в текущий журнал одной строкой.
+     */
+    @Override
+    public void commitTransaction() throws ManagerSaveException {
+        List<String> records = transaction;
+        transaction = null;
+        append(records);
+    }
+
+    @Override
+    public void rollbackTransaction() {
+        transaction = null;
+    }
+
+    /**
+     * Дожидается начатого сжатия и закрывает текущий журнал.
+     */
+    @Override
+    public void close() throws ManagerSaveException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (changelog != null) {
+            try {
+                changelog.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException(e.getMessage());
+            }
+            changelog = null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.practikum.storage;
+
+/**
+ * Условие запуска сжатия журнала изменений в {@link CheckpointStorage}.
+ * <p>
+ * Сжатие запускается, когда в текущем журнале накопилось не меньше {@code maxRecords} записей
+ * или когда его размер достиг {@code sizeRatio} от размера контрольной точки.
+ * Пока контрольная точка меньше {@code minCheckpointBytes}, размер журнала сравнивается с этим порогом,
+ * чтобы небольшая доска не сжималась после каждого изменения.
+ */
+public final class CompactionTrigger {
+
+    public static final int DEFAULT_MAX_RECORDS = 10_000;
+    public static final double DEFAULT_SIZE_RATIO = 1.0;
+    public static final long DEFAULT_MIN_CHECKPOINT_BYTES = 64 * 1024;
+
+    private final int maxRecords;
+    private final double sizeRatio;
+    private final long minCheckpointBytes;
+
+    public CompactionTrigger() {
+        this(DEFAULT_MAX_RECORDS, DEFAULT_SIZE_RATIO, DEFAULT_MIN_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * @param maxRecords         количество записей журнала, после которого запускается сжатие
+     * @param sizeRatio          отношение размера журнала к размеру контрольной точки, после которого запускается сжатие
+     * @param minCheckpointBytes размер контрольной точки, меньше которого она считается равной этому размеру
+     * @throws IllegalArgumentException если параметры не положительны
+     */
+    public CompactionTrigger(int maxRecords, double sizeRatio, long minCheckpointBytes) {
+        if (maxRecords < 1 || !(sizeRatio > 0) || minCheckpointBytes < 0) {
+            throw new IllegalArgumentException("Параметры сжатия должны быть положительными");
+        }
+        this.maxRecords = maxRecords;
+        this.sizeRatio = sizeRatio;
+        this.minCheckpointBytes = minCheckpointBytes;
+    }
+
+    /**
+     * Проверяет, пора ли сжимать журнал.
+     *
+     * @param records         количество записей в текущем журнале
+     * @param changelogBytes  размер текущего журнала в байтах
+     * @param checkpointBytes размер контрольной точки в байтах
+     */
+    public boolean shouldCompact(long records, long changelogBytes, long checkpointBytes) {
+        return records >= maxRecords
+                || changelogBytes >= sizeRatio * Math.max(checkpointBytes, minCheckpointBytes);
+    }
+
+    public int getMaxRecords() {
+        return maxRecords;
+    }
+
+    public double getSizeRatio() {
+        return sizeRatio;
+    }
+
+    public long getMinCheckpointBytes() {
+        return minCheckpointBytes;
+    }
+}
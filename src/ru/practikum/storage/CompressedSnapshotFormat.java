@@ -0,0 +1,362 @@
+package ru.practikum.storage;
+
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Task;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатый формат файла задач: текстовые записи {@link TaskTextWriter}, разбитые на блоки,
+ * каждый из которых сжат {@link Deflater} независимо от остальных.
+ * <p>
+ * Разметка файла (числа — big-endian):
+ * <pre>
+ * заголовок, 8 байт:  magic (int) | версия (short) | уровень сжатия (byte) | резерв (byte)
+ * блоки:              сжатые байты блока подряд
+ * индекс, 24 байта на блок:  смещение (long) | сжатый размер (int) | исходный размер (int) |
+ *                            номер первой записи (int) | количество записей (int)
+ * окончание, 16 байт: смещение индекса (long) | количество блоков (int) | magic (int)
+ * </pre>
+ * По индексу в конце файла можно перейти к любому блоку и распаковать только его, см. {@link BlockIndex}.
+ * Блок закрывается, когда его исходный размер достигает заданного, поэтому запись не делится между блоками.
+ */
+public class CompressedSnapshotFormat implements SnapshotFormat {
+
+    static final int MAGIC = 0x4B425A31;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 24;
+    static final int FOOTER_SIZE = 16;
+
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    private static final String[] TYPE_ORDER = {"Epic", "Subtask", "Task"};
+
+    private final int level;
+    private final int blockSize;
+
+    public CompressedSnapshotFormat() {
+        this(Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param level     уровень сжатия от 0 (без сжатия) до 9 (наилучшее) или {@link Deflater#DEFAULT_COMPRESSION}
+     * @param blockSize исходный размер блока в байтах
+     * @throws IllegalArgumentException если уровень или размер блока некорректны
+     */
+    public CompressedSnapshotFormat(int level, int blockSize) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Уровень сжатия должен быть от 0 до 9");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным");
+        }
+        this.level = level;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Описание одного блока в индексе.
+     */
+    public static final class Block {
+
+        private final long offset;
+        private final int compressedSize;
+        private final int size;
+        private final int firstRecord;
+        private final int recordCount;
+
+        private Block(long offset, int compressedSize, int size, int firstRecord, int recordCount) {
+            this.offset = offset;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.firstRecord = firstRecord;
+            this.recordCount = recordCount;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getCompressedSize() {
+            return compressedSize;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getFirstRecord() {
+            return firstRecord;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+    }
+
+    /**
+     * Индекс блоков сжатого файла.
+     */
+    public static final class BlockIndex {
+
+        private final List<Block> blocks;
+
+        private BlockIndex(List<Block> blocks) {
+            this.blocks = blocks;
+        }
+
+        public List<Block> getBlocks() {
+            return blocks;
+        }
+
+        /**
+         * Возвращает общее количество записей в файле.
+         */
+        public int getRecordCount() {
+            if (blocks.isEmpty()) {
+                return 0;
+            }
+            Block last = blocks.get(blocks.size() - 1);
+            return last.getFirstRecord() + last.getRecordCount();
+        }
+
+        /**
+         * Возвращает номер блока, содержащего запись с указанным номером, или -1.
+         */
+        public int blockOfRecord(int record) {
+            int low = 0;
+            int high = blocks.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                Block block = blocks.get(middle);
+                if (record < block.getFirstRecord()) {
+                    high = middle - 1;
+                } else if (record >= block.getFirstRecord() + block.getRecordCount()) {
+                    low = middle + 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Возвращает степень сжатия: отношение исходного размера данных к сжатому.
+         */
+        public double getCompressionRatio() {
+            long size = 0;
+            long compressedSize = 0;
+            for (Block block : blocks) {
+                size += block.getSize();
+                compressedSize += block.getCompressedSize();
+            }
+            return compressedSize == 0 ? 1.0 : (double) size / compressedSize;
+        }
+    }
+
+    @Override
+    public void write(Path path, Map<String, Map<Integer, Task>> tasksList) throws IOException {
+        Deflater deflater = new Deflater(level);
+        List<Block> blocks = new ArrayList<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(path.toFile()), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeByte(level);
+            out.writeByte(0);
+            long position = HEADER_SIZE;
+
+            ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize + 1024);
+            Writer blockWriter = new OutputStreamWriter(block, StandardCharsets.UTF_8);
+            TaskTextWriter taskWriter = new TaskTextWriter(blockWriter);
+            byte[] compressed = new byte[64 * 1024];
+            int records = 0;
+            int blockRecords = 0;
+            for (String issueType : TYPE_ORDER) {
+                for (Task issue : tasksList.get(issueType).values()) {
+                    taskWriter.write(issue);
+                    blockWriter.flush();
+                    blockRecords++;
+                    if (block.size() >= blockSize) {
+                        position = writeBlock(out, deflater, block, compressed, position, records, blockRecords, blocks);
+                        records += blockRecords;
+                        blockRecords = 0;
+                    }
+                }
+            }
+            if (blockRecords > 0) {
+                position = writeBlock(out, deflater, block, compressed, position, records, blockRecords, blocks);
+            }
+
+            long indexOffset = position;
+            for (Block entry : blocks) {
+                out.writeLong(entry.getOffset());
+                out.writeInt(entry.getCompressedSize());
+                out.writeInt(entry.getSize());
+                out.writeInt(entry.getFirstRecord());
+                out.writeInt(entry.getRecordCount());
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(blocks.size());
+            out.writeInt(MAGIC);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static long writeBlock(DataOutputStream out, Deflater deflater, ByteArrayOutputStream block,
+                                   byte[] compressed, long position, int firstRecord, int recordCount,
+                                   List<Block> blocks) throws IOException {
+        byte[] data = block.toByteArray();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        int compressedSize = 0;
+        while (!deflater.finished()) {
+            int length = deflater.deflate(compressed);
+            out.write(compressed, 0, length);
+            compressedSize += length;
+        }
+        blocks.add(new Block(position, compressedSize, data.length, firstRecord, recordCount));
+        block.reset();
+        return position + compressedSize;
+    }
+
+    /**
+     * Читает индекс блоков из конца файла.
+     *
+     * @param path сжатый файл задач
+     * @throws IOException если файл имеет другой формат
+     */
+    public static BlockIndex readIndex(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readIndex(channel);
+        }
+    }
+
+    private static BlockIndex readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + FOOTER_SIZE) {
+            throw new IOException("Файл не является сжатым файлом задач");
+        }
+        ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+        ByteBuffer footer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+        if (header.getInt(0) != MAGIC || footer.getInt(12) != MAGIC) {
+            throw new IOException("Файл не является сжатым файлом задач");
+        }
+        if (header.getShort(4) != VERSION) {
+            throw new IOException("Неподдерживаемая версия сжатого файла задач");
+        }
+        long indexOffset = footer.getLong(0);
+        int blockCount = footer.getInt(8);
+        if (indexOffset < HEADER_SIZE || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != size - FOOTER_SIZE) {
+            throw new IOException("Индекс блоков повреждён");
+        }
+        ByteBuffer index = readFully(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+        List<Block> blocks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(new Block(index.getLong(), index.getInt(), index.getInt(), index.getInt(), index.getInt()));
+        }
+        return new BlockIndex(List.copyOf(blocks));
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Неожиданный конец сжатого файла задач");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Распаковывает и разбирает только указанный блок.
+     *
+     * @param path  сжатый файл задач
+     * @param block номер блока в индексе
+     * @return задачи блока в порядке следования
+     */
+    public static List<Task> readBlock(Path path, int block) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Inflater inflater = new Inflater();
+            try {
+                return readBlock(channel, inflater, readIndex(channel).getBlocks().get(block));
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static List<Task> readBlock(FileChannel channel, Inflater inflater, Block block) throws IOException {
+        ByteBuffer compressed = readFully(channel, block.getOffset(), block.getCompressedSize());
+        byte[] data = new byte[block.getSize()];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < data.length && !inflater.finished()) {
+                int inflated = inflater.inflate(data, length, data.length - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != data.length) {
+                throw new IOException("Блок сжатого файла задач повреждён");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Блок сжатого файла задач повреждён: " + e.getMessage());
+        }
+        List<Task> issues = new ArrayList<>(block.getRecordCount());
+        TaskTextReader reader = new TaskTextReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8));
+        while (true) {
+            try {
+                Task issue = reader.next();
+                if (issue == null) {
+                    return issues;
+                }
+                issues.add(issue);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Распаковывает блоки по очереди и загружает задачи каждого блока в менеджер одной пачкой.
+     */
+    @Override
+    public void read(Path path, TaskManager manager) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Inflater inflater = new Inflater();
+            try {
+                for (Block block : readIndex(channel).getBlocks()) {
+                    IssueBatchLoader.load(manager, readBlock(channel, inflater, block));
+                }
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+}
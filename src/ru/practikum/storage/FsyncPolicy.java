@@ -0,0 +1,22 @@
+package ru.practikum.storage;
+
+/**
+ * Политика сброса журнала на диск в {@link GroupCommitStorage}.
+ */
+public enum FsyncPolicy {
+    /**
+     * Операция завершается только после {@code FileChannel.force}. Операции, пришедшие,
+     * пока идёт сброс, объединяются в одну запись и один {@code force}.
+     */
+    EVERY_OP,
+    /**
+     * Операция завершается сразу, журнал записывается и сбрасывается на диск фоновым потоком
+     * раз в заданный интервал. При сбое теряются изменения за последний интервал.
+     */
+    INTERVAL,
+    /**
+     * Операция завершается после записи в файл без {@code force}: когда данные попадут на диск, решает ОС.
+     * Изменения переживают падение процесса, но не сбой питания.
+     */
+    OS
+}
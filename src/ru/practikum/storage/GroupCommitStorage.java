@@ -0,0 +1,253 @@
+package ru.practikum.storage;
+
+import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.manager.TaskManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал в формате {@link JournalStorage} с групповой фиксацией.
+ * <p>
+ * Записи копятся в общем буфере в памяти. Вызывающий, которому нужно дождаться сохранения,
+ * становится ведущим, если запись ещё никто не выполняет: забирает весь буфер, записывает его
+ * в {@link FileChannel} одним вызовом и, в зависимости от {@link FsyncPolicy}, вызывает {@code force}.
+ * Остальные ждут и, если их записи попали в эту пачку, завершаются без собственного ввода-вывода.
+ * Чем больше параллельных вызывающих, тем больше записей приходится на один {@code force}.
+ */
+public class GroupCommitStorage extends JournalStorage {
+
+    /**
+     * Буфер, отдающий накопленные байты без копирования.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        private ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    private final FsyncPolicy policy;
+    private final long intervalMillis;
+
+    private final Object monitor = new Object();
+    private Buffer pending = new Buffer();
+    private Buffer spare = new Buffer();
+
+    /**
+     * Номер последней добавленной записи и номер последней сохранённой записи.
+     */
+    private long appendedSeq;
+    private long durableSeq;
+    private boolean flushing;
+    private IOException failure;
+    private long batchCount;
+
+    private FileChannel channel;
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Создаёт журнал, сбрасываемый на диск при каждой операции.
+     */
+    public GroupCommitStorage(String fileName) {
+        this(fileName, FsyncPolicy.EVERY_OP, 0);
+    }
+
+    /**
+     * @param fileName       имя файла журнала
+     * @param policy         политика сброса на диск
+     * @param intervalMillis интервал сброса для {@link FsyncPolicy#INTERVAL}, для остальных политик не используется
+     * @throws IllegalArgumentException если для {@link FsyncPolicy#INTERVAL} интервал не положителен
+     */
+    public GroupCommitStorage(String fileName, FsyncPolicy policy, long intervalMillis) {
+        super(fileName);
+        if (policy == FsyncPolicy.INTERVAL && intervalMillis < 1) {
+            throw new IllegalArgumentException("Интервал сброса должен быть положительным");
+        }
+        this.policy = policy;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Воспроизводит журнал и открывает его для дозаписи.
+     * Для {@link FsyncPolicy#INTERVAL} запускает фоновый сброс.
+     */
+    @Override
+    public void load(TaskManager manager) throws ManagerSaveException {
+        Path path = Path.of(getFileName());
+        try {
+            if (Files.exists(path)) {
+                truncateTornRecord(path);
+                replay(path, manager);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        if (policy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(() -> {
+                try {
+                    flush();
+                } catch (ManagerSaveException e) {
+                    System.out.println(e.getMessage());
+                }
+            }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Добавляет запись в общий буфер. Запись на диск выполняется позже, в {@link #sync()} или фоновым потоком.
+     */
+    @Override
+    protected void append(String record) throws ManagerSaveException {
+        byte[] bytes = (record + '\n').getBytes(StandardCharsets.UTF_8);
+        synchronized (monitor) {
+            if (failure != null) {
+                throw new ManagerSaveException(failure.getMessage());
+            }
+            pending.write(bytes, 0, bytes.length);
+            appendedSeq++;
+        }
+    }
+
+    /**
+     * Ждёт сохранения всех добавленных к этому моменту записей. Для {@link FsyncPolicy#INTERVAL} не ждёт.
+     */
+    @Override
+    public void sync() throws ManagerSaveException {
+        if (policy != FsyncPolicy.INTERVAL) {
+            flush();
+        }
+    }
+
+    /**
+     * Записывает все добавленные к этому моменту записи и ждёт их сохранения независимо от политики.
+     *
+     * @throws ManagerSaveException если запись не удалась
+     */
+    public void flush() throws ManagerSaveException {
+        long target;
+        synchronized (monitor) {
+            target = appendedSeq;
+        }
+        awaitDurable(target);
+    }
+
+    /**
+     * Ждёт, пока запись с указанным номером будет сохранена, при необходимости выполняя запись самостоятельно.
+     */
+    private void awaitDurable(long target) throws ManagerSaveException {
+        while (true) {
+            Buffer batch;
+            long batchSeq;
+            synchronized (monitor) {
+                while (flushing && durableSeq < target) {
+                    try {
+                        monitor.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new ManagerSaveException("Ожидание записи журнала прервано");
+                    }
+                }
+                if (failure != null) {
+                    throw new ManagerSaveException(failure.getMessage());
+                }
+                if (durableSeq >= target) {
+                    return;
+                }
+                flushing = true;
+                batch = pending;
+                pending = spare;
+                batchSeq = appendedSeq;
+            }
+            IOException error = null;
+            try {
+                ByteBuffer bytes = batch.asByteBuffer();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (policy != FsyncPolicy.OS) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (monitor) {
+                batch.reset();
+                spare = batch;
+                flushing = false;
+                if (error == null) {
+                    durableSeq = batchSeq;
+                    batchCount++;
+                } else {
+                    failure = error;
+                }
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    public FsyncPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Возвращает количество записей, добавленных в журнал с момента открытия.
+     */
+    public long getRecordCount() {
+        synchronized (monitor) {
+            return appendedSeq;
+        }
+    }
+
+    /**
+     * Возвращает количество пачек, записанных в файл с момента открытия.
+     * Отношение {@link #getRecordCount()} к этому значению — средний размер пачки.
+     */
+    public long getBatchCount() {
+        synchronized (monitor) {
+            return batchCount;
+        }
+    }
+
+    /**
+     * Останавливает фоновый сброс, записывает оставшиеся записи на диск и закрывает файл.
+     */
+    @Override
+    public void close() throws ManagerSaveException {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        if (channel != null) {
+            try {
+                flush();
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException(e.getMessage());
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
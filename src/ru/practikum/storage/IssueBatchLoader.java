@@ -0,0 +1,39 @@
+package ru.practikum.storage;
+
+import ru.practikum.manager.InMemoryTaskManager;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Task;
+
+import java.util.List;
+
+/**
+ * Загрузка прочитанных из файла задач в менеджер.
+ * <p>
+ * Для {@link InMemoryTaskManager} задачи загружаются разом через {@link InMemoryTaskManager#loadIssues},
+ * без записи в историю и с однократным пересчётом статусов эпиков. Если задачи нельзя загрузить разом
+ * (повторяющийся идентификатор, подзадача без эпика) или менеджер другой, они добавляются по одной,
+ * а ошибочные пропускаются с сообщением.
+ */
+final class IssueBatchLoader {
+
+    private IssueBatchLoader() {
+    }
+
+    static void load(TaskManager manager, List<Task> issues) {
+        if (manager instanceof InMemoryTaskManager<?> inMemoryManager) {
+            try {
+                inMemoryManager.loadIssues(issues);
+                return;
+            } catch (IllegalArgumentException e) {
+                System.out.println("Массовая загрузка невозможна, задачи загружаются по одной: " + e.getMessage());
+            }
+        }
+        for (Task issue : issues) {
+            try {
+                manager.addIssue(issue);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Задача пропущена: " + issue + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package ru.practikum.storage;
+
+import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Task;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Хранилище в виде журнала: каждое изменение дописывается в конец файла одной записью,
+ * а при запуске журнал воспроизводится с начала. Стоимость записи не зависит от числа задач.
+ * <p>
+ * Формат записи — одна строка:
+ * <ul>
+ *     <li>{@code A <задача>} — добавление, задача в формате {@link TaskLineFormat};</li>
+ *     <li>{@code U <задача>} — изменение, задача в новом состоянии;</li>
+ *     <li>{@code R <тип> <id>} — удаление (для эпика — вместе с подзадачами);</li>
+ *     <li>{@code C <тип>} — очистка списка задач типа;</li>
+ *     <li>{@code T <длина>:<запись><длина>:<запись>...} — несколько записей пакетной операции или транзакции,
+ *     каждая с длиной в символах; воспроизводятся в одной транзакции менеджера.</li>
+ * </ul>
+ * Недописанная последняя запись (например, после сбоя) при загрузке отбрасывается, поэтому пакетная
+ * операция или транзакция, записанная одной строкой, восстанавливается целиком или не восстанавливается вовсе.
+ */
+public class JournalStorage implements TaskStorage {
+
+    static final char ADD = 'A';
+    static final char UPDATE = 'U';
+    static final char REMOVE = 'R';
+    static final char CLEAR = 'C';
+    static final char TRANSACTION = 'T';
+
+    private final String fileName;
+    private Writer writer;
+    //записи текущей транзакции, ещё не дописанные в журнал; null вне транзакции
+    private List<String> transaction;
+
+    public JournalStorage(String fileName) {
+        this.fileName = fileName;
+    }
+
+    @Override
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Воспроизводит журнал и открывает его для дозаписи. Отсутствующий файл означает пустой список задач.
+     */
+    @Override
+    public void load(TaskManager manager) throws ManagerSaveException {
+        Path path = Path.of(fileName);
+        try {
+            if (Files.exists(path)) {
+                truncateTornRecord(path);
+                replay(path, manager);
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                    StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    /**
+     * Воспроизводит записи журнала в менеджере.
+     *
+     * @param path    файл журнала
+     * @param manager менеджер задач
+     * @return количество воспроизведённых записей
+     */
+    static long replay(Path path, TaskManager manager) throws IOException {
+        long records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                if (record.isEmpty()) {
+                    continue;
+                }
+                try {
+                    apply(record, manager);
+                    records++;
+                } catch (RuntimeException e) {
+                    System.out.println("Запись журнала пропущена: " + record + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Применяет одну запись журнала к менеджеру.
+     */
+    static void apply(String record, TaskManager manager) {
+        String body = record.substring(2);
+        switch (record.charAt(0)) {
+            case ADD -> manager.addIssue(TaskLineFormat.parse(body));
+            case UPDATE -> {
+                Task issue = TaskLineFormat.parse(body);
+                manager.updateIssue(issue.getId(), issue);
+            }
+            case REMOVE -> {
+                int separator = body.indexOf(' ');
+                manager.removeIssueById(Integer.parseInt(body.substring(separator + 1)), body.substring(0, separator));
+            }
+            case CLEAR -> manager.clearIssuesList(body);
+            case TRANSACTION -> {
+                List<String> records = transactionRecords(body);
+                manager.transaction(tx -> records.forEach(inner -> apply(inner, tx)));
+            }
+            default -> throw new IllegalArgumentException("Неизвестный тип записи");
+        }
+    }
+
+    /**
+     * Отрезает от журнала последнюю запись, если она не завершена переводом строки.
+     */
+    static void truncateTornRecord(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            while (end > 0) {
+                buffer.clear();
+                channel.read(buffer, end - 1);
+                if (buffer.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < channel.size()) {
+                channel.truncate(end);
+            }
+        }
+    }
+
+    static String addRecord(Task issue) {
+        return ADD + " " + TaskLineFormat.format(issue);
+    }
+
+    static String updateRecord(Task issue) {
+        return UPDATE + " " + TaskLineFormat.format(issue);
+    }
+
+    static String removeRecord(String issueType, int id) {
+        return REMOVE + " " + issueType + " " + id;
+    }
+
+    static String clearRecord(String issueType) {
+        return CLEAR + " " + issueType;
+    }
+
+    /**
+     * Объединяет записи в одну запись {@code T}, предваряя каждую её длиной.
+     */
+    static String transactionRecord(List<String> records) {
+        StringBuilder record = new StringBuilder().append(TRANSACTION).append(' ');
+        for (String inner : records) {
+            record.append(inner.length()).append(':').append(inner);
+        }
+        return record.toString();
+    }
+
+    /**
+     * Разбирает тело записи {@code T} на вложенные записи.
+     *
+     * @throws IllegalArgumentException если длина записи не соответствует телу
+     */
+    static List<String> transactionRecords(String body) {
+        List<String> records = new ArrayList<>();
+        int position = 0;
+        while (position < body.length()) {
+            int separator = body.indexOf(':', position);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Повреждена запись транзакции");
+            }
+            int end = separator + 1 + Integer.parseInt(body.substring(position, separator));
+            if (end > body.length()) {
+                throw new IllegalArgumentException("Повреждена запись транзакции");
+            }
+            records.add(body.substring(separator + 1, end));
+            position = end;
+        }
+        return records;
+    }
+
+    /**
+     * Дописывает запись в журнал и сбрасывает буфер в файл.
+     */
+    protected void append(String record) throws ManagerSaveException {
+        try {
+            writer.write(record);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    /**
+     * Дописывает несколько записей одним вызовом {@link #append(String)}, объединяя их в запись {@code T},
+     * поэтому пакетная операция сохраняется одной строкой файла.
+     */
+    protected void append(List<String> records) throws ManagerSaveException {
+        if (records.size() == 1) {
+            append(records.get(0));
+        } else if (!records.isEmpty()) {
+            append(transactionRecord(records));
+        }
+    }
+
+    /**
+     * Дописывает запись в журнал или, внутри транзакции, откладывает её до фиксации.
+     */
+    private void log(String record) throws ManagerSaveException {
+        if (transaction != null) {
+            transaction.add(record);
+        } else {
+            append(record);
+        }
+    }
+
+    private void log(List<String> records) throws ManagerSaveException {
+        if (transaction != null) {
+            transaction.addAll(records);
+        } else {
+            append(records);
+        }
+    }
+
+    static List<String> addRecords(List<? extends Task> issues) {
+        List<String> records = new ArrayList<>(issues.size());
+        for (Task issue : issues) {
+            records.add(addRecord(issue));
+        }
+        return records;
+    }
+
+    static List<String> updateRecords(List<? extends Task> issues) {
+        List<String> records = new ArrayList<>(issues.size());
+        for (Task issue : issues) {
+            records.add(updateRecord(issue));
+        }
+        return records;
+    }
+
+    static List<String> removeRecords(String issueType, Collection<Integer> ids) {
+        List<String> records = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            records.add(removeRecord(issueType, id));
+        }
+        return records;
+    }
+
+    @Override
+    public void issueAdded(Task issue) throws ManagerSaveException {
+        log(addRecord(issue));
+    }
+
+    @Override
+    public void issueUpdated(Task issue) throws ManagerSaveException {
+        log(updateRecord(issue));
+    }
+
+    @Override
+    public void issueRemoved(String issueType, int id) throws ManagerSaveException {
+        log(removeRecord(issueType, id));
+    }
+
+    @Override
+    public void issuesCleared(String issueType) throws ManagerSaveException {
+        log(clearRecord(issueType));
+    }
+
+    @Override
+    public void issuesAdded(List<? extends Task> issues) throws ManagerSaveException {
+        log(addRecords(issues));
+    }
+
+    @Override
+    public void issuesUpdated(List<? extends Task> issues) throws ManagerSaveException {
+        log(updateRecords(issues));
+    }
+
+    @Override
+    public void issuesRemoved(String issueType, Collection<Integer> ids) throws ManagerSaveException {
+        log(removeRecords(issueType, ids));
+    }
+
+    @Override
+    public void beginTransaction() {
+        transaction = new ArrayList<>();
+    }
+
+    /**
+     * Дописывает записи транзакции одной записью {@code T}.
+     */
+    @Override
+    public void commitTransaction() throws ManagerSaveException {
+        List<String> records = transaction;
+        transaction = null;
+        append(records);
+    }
+
+    @Override
+    public void rollbackTransaction() {
+        transaction = null;
+    }
+
+    @Override
+    public void close() throws ManagerSaveException {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException(e.getMessage());
+            }
+            writer = null;
+        }
+    }
+}
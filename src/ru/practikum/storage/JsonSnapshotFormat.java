@@ -0,0 +1,226 @@
+package ru.practikum.storage;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.*;
+import ru.practikum.utils.IntArraySet;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Формат файла задач в JSON, читаемый и записываемый потоково через {@link JsonParser} и {@link JsonGenerator}
+ * без построения дерева объектов, поэтому память не зависит от размера файла.
+ * <p>
+ * Структура файла:
+ * <pre>
+ * {"version": 1,
+ *  "epics":    [{"id": 1, "summary": "...", "description": "...", "status": "NEW", "subtaskIds": [1, 2]}, ...],
+ *  "subtasks": [{"id": 1, "epicId": 1, "summary": "...", "description": "...", "status": "DONE"}, ...],
+ *  "tasks":    [{"id": 1, "summary": "...", "description": "...", "status": "IN_PROGRESS"}, ...]}
+ * </pre>
+ * Неизвестные поля пропускаются. Задачи загружаются в менеджер пачками по {@link #LOAD_BATCH_SIZE}
+ * (см. {@link IssueBatchLoader}), поэтому эпики должны предшествовать своим подзадачам.
+ */
+public class JsonSnapshotFormat implements SnapshotFormat {
+
+    public static final int VERSION = 1;
+    public static final int LOAD_BATCH_SIZE = 4096;
+
+    private static final String[][] SECTIONS = {{"Epic", "epics"}, {"Subtask", "subtasks"}, {"Task", "tasks"}};
+
+    private final JsonFactory factory = new JsonFactory();
+    private final boolean pretty;
+
+    public JsonSnapshotFormat() {
+        this(false);
+    }
+
+    /**
+     * @param pretty {@code true}, чтобы записывать JSON с отступами
+     */
+    public JsonSnapshotFormat(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    @Override
+    public void write(Path path, Map<String, Map<Integer, Task>> tasksList) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(out, tasksList);
+        }
+    }
+
+    /**
+     * Записывает все задачи в поток в кодировке UTF-8. Поток не закрывается.
+     *
+     * @param out       поток для записи
+     * @param tasksList задачи, разбитые по типам
+     */
+    public void write(OutputStream out, Map<String, Map<Integer, Task>> tasksList) throws IOException {
+        try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (pretty) {
+                generator.useDefaultPrettyPrinter();
+            }
+            generator.writeStartObject();
+            generator.writeNumberField("version", VERSION);
+            for (String[] section : SECTIONS) {
+                generator.writeArrayFieldStart(section[1]);
+                for (Task issue : tasksList.get(section[0]).values()) {
+                    writeIssue(generator, issue);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Записывает одну задачу JSON-объектом.
+     *
+     * @param generator генератор, в который записывается объект
+     * @param issue     задача
+     */
+    public static void writeIssue(JsonGenerator generator, Task issue) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", issue.getId());
+        if (issue instanceof Subtask subtask) {
+            generator.writeNumberField("epicId", subtask.getEpicId());
+        }
+        generator.writeStringField("summary", issue.getSummary());
+        generator.writeStringField("description", issue.getDescription());
+        generator.writeStringField("status", issue.getStatus().name());
+        if (issue instanceof Epic epic) {
+            generator.writeArrayFieldStart("subtaskIds");
+            IntArraySet subtasks = epic.getSubtasks();
+            for (int i = 0; i < subtasks.size(); i++) {
+                generator.writeNumber(subtasks.getInt(i));
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void read(Path path, TaskManager manager) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            List<Task> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+            read(in, issue -> {
+                batch.add(issue);
+                if (batch.size() == LOAD_BATCH_SIZE) {
+                    IssueBatchLoader.load(manager, batch);
+                    batch.clear();
+                }
+            });
+            IssueBatchLoader.load(manager, batch);
+        }
+    }
+
+    /**
+     * Читает задачи из потока по одной и передаёт их обработчику в порядке следования. Поток не закрывается.
+     *
+     * @param in       поток с JSON в формате доски
+     * @param consumer обработчик прочитанных задач
+     * @throws IOException если JSON повреждён или не соответствует формату
+     */
+    public void read(InputStream in, Consumer<Task> consumer) throws IOException {
+        try (JsonParser parser = factory.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                String issueType = sectionType(field);
+                if (field.equals("version")) {
+                    if (parser.getIntValue() > VERSION) {
+                        throw new IOException("Неподдерживаемая версия файла задач: " + parser.getIntValue());
+                    }
+                } else if (issueType != null) {
+                    expect(parser, value, JsonToken.START_ARRAY);
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        consumer.accept(readIssue(parser, issueType));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * Читает одну задачу. Парсер должен стоять на начале объекта, после чтения он стоит на его конце.
+     *
+     * @param parser    парсер
+     * @param issueType тип задачи ("Task", "Subtask", "Epic")
+     * @return задача
+     */
+    public static Task readIssue(JsonParser parser, String issueType) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        int id = 0;
+        int epicId = 0;
+        String summary = "";
+        String description = "";
+        Status status = Status.NEW;
+        IntArraySet subtaskIds = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getIntValue();
+                case "epicId" -> epicId = parser.getIntValue();
+                case "summary" -> summary = parser.getValueAsString("");
+                case "description" -> description = parser.getValueAsString("");
+                case "status" -> {
+                    try {
+                        status = Status.valueOf(parser.getText());
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Неизвестный статус задачи: " + parser.getText());
+                    }
+                }
+                case "subtaskIds" -> {
+                    expect(parser, value, JsonToken.START_ARRAY);
+                    subtaskIds = new IntArraySet();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        subtaskIds.addInt(parser.getIntValue());
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        Task issue = switch (issueType) {
+            case "Subtask" -> new Subtask(summary, description, epicId);
+            case "Epic" -> new Epic(summary, description);
+            default -> new Task(summary, description);
+        };
+        issue.setId(id);
+        issue.setStatus(status);
+        if (subtaskIds != null && issue instanceof Epic epic) {
+            subtaskIds.forEachInt(epic.getSubtasks()::addInt);
+        }
+        return issue;
+    }
+
+    private static String sectionType(String field) {
+        for (String[] section : SECTIONS) {
+            if (section[1].equals(field)) {
+                return section[0];
+            }
+        }
+        return null;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Ожидалось " + expected + ", найдено " + actual + " в " + parser.currentLocation());
+        }
+    }
+}
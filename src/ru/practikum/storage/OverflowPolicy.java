@@ -0,0 +1,15 @@
+package ru.practikum.storage;
+
+/**
+ * Поведение {@link WriteBehindStorage}, когда очередь несохранённых изменений заполнена.
+ */
+public enum OverflowPolicy {
+    /**
+     * Вызывающий ждёт, пока поток записи освободит место в очереди.
+     */
+    BLOCK,
+    /**
+     * Изменение отклоняется и не применяется.
+     */
+    REJECT
+}
@@ -0,0 +1,994 @@
+package ru.practikum.storage;
+
+import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.*;
+import ru.practikum.utils.IntArraySet;
+import ru.practikum.utils.IntObjectHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Хранилище в страничном файле: каждая задача — отдельная запись в слоте страницы, и изменение
+ * задачи перезаписывает только страницы с её записью. Объём записи на диск пропорционален изменению,
+ * а не числу задач, и в отличие от журнала файл не растёт от повторных изменений одних и тех же задач.
+ * <p>
+ * Разметка файла (числа — big-endian), страница 0 — заголовок, остальные — страницы данных:
+ * <pre>
+ * заголовок:           magic (int) | версия (short) | резерв (short) | размер страницы (int)
+ * страница со слотами: вид (byte) | резерв (byte) | количество слотов (short) | начало записей (short) | резерв (short) |
+ *                      слоты по 4 байта: смещение записи (short) | длина записи (short), длина 0 — свободный слот;
+ *                      записи занимают конец страницы и растут к началу
+ * большая запись:      вид (byte) | резерв (3 байта) | количество страниц (int) | длина записи (int) | запись,
+ *                      продолжающаяся на следующих страницах подряд
+ * свободные страницы:  вид (byte) | резерв (3 байта) | количество свободных страниц подряд (int)
+ * запись:              тип (byte) | статус (byte) | резерв (short) | id (int) | id эпика (int) | номер записи (int) |
+ *                      длина и UTF-8 байты названия | длина и UTF-8 байты описания
+ * </pre>
+ * Изменённые и удалённые с последней записи задачи отмечаются в наборе грязных записей, который сбрасывается
+ * на диск после каждого изменения: каждая затронутая страница записывается один раз, а если записи переносились —
+ * не более двух раз (см. ниже). Запись, которая
+ * не стала длиннее, обновляется на месте; более длинная переносится в другое место страницы или на страницу
+ * со свободным местом, которую хранилище находит по карте свободного места без чтения файла.
+ * <p>
+ * Запись переносится на новое место раньше, чем освобождается старое: страницы с новыми копиями перенесённых
+ * записей записываются и сбрасываются на диск ({@link FileChannel#force}) до записи страниц, освобождающих
+ * старые копии. Поэтому после сбоя задача не пропадает, но в файле может оказаться две её копии. При загрузке
+ * остаётся копия с большим номером записи, а другая освобождается.
+ * Изменения транзакции записываются одним сбросом, но сбой посреди сброса может сохранить только часть страниц.
+ * <p>
+ * В режиме ленивых описаний в памяти остаются только id, тип, статус и название задачи, а описание
+ * читается из файла при первом обращении к {@link Task#getDescription()} (см. {@link DescriptionSource}).
+ * Недавно прочитанные и записанные описания хранятся в кеше ограниченного размера. Описание задачи,
+ * запись которой уже удалена из файла, недоступно: возвращается пустая строка.
+ */
+public class PagedStorage implements TaskStorage {
+
+    static final int MAGIC = 0x4B504731;
+    static final short VERSION = 1;
+
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    public static final int MIN_PAGE_SIZE = 256;
+    public static final int MAX_PAGE_SIZE = 32768;
+    public static final int DEFAULT_DESCRIPTION_CACHE_SIZE = 1024;
+
+    static final byte FREE_PAGE = 0;
+    static final byte SLOTTED_PAGE = 1;
+    static final byte EXTENT_PAGE = 2;
+
+    static final int PAGE_HEADER_SIZE = 8;
+    static final int SLOT_SIZE = 4;
+    static final int EXTENT_HEADER_SIZE = 12;
+    static final int RECORD_HEADER_SIZE = 16;
+
+    private static final IssueType[] LOAD_ORDER = {IssueType.EPIC, IssueType.SUBTASK, IssueType.TASK};
+
+    /**
+     * Место записи задачи в файле: страница и слот или, для большой записи, первая страница и их количество.
+     */
+    private static final class Location {
+
+        private final int page;
+        private final int slot;
+        private final int pages;
+        private final int epicId;
+
+        private Location(int page, int slot, int pages, int epicId) {
+            this.page = page;
+            this.slot = slot;
+            this.pages = pages;
+            this.epicId = epicId;
+        }
+
+        private boolean isExtent() {
+            return slot < 0;
+        }
+    }
+
+    private final String fileName;
+    private final int pageSize;
+    private final boolean lazyDescriptions;
+    private final DescriptionSource descriptionSource = this::loadDescription;
+
+    /**
+     * Кеш описаний в порядке обращения: ключ — тип и id задачи.
+     */
+    private final LinkedHashMap<Long, String> descriptionCache;
+
+    /**
+     * Файл, отображённый в память на время загрузки, чтобы индексы строились без отдельного чтения описаний.
+     */
+    private ByteBuffer loadingFile;
+    private long descriptionReads;
+
+    private FileChannel channel;
+    private int pageCount;
+    private int writeSeq;
+    private int lastInsertPage;
+
+    private final Map<IssueType, IntObjectHashMap<Location>> directory = new EnumMap<>(IssueType.class);
+    private final IntObjectHashMap<IntArraySet> epicSubtasks = new IntObjectHashMap<>();
+
+    /**
+     * Карта свободного места: свободные байты страницы со слотами или -1 для остальных страниц.
+     */
+    private int[] freeSpace = new int[16];
+
+    /**
+     * Страницы со слотами, на которых есть свободное место, по количеству свободных байт.
+     * Страницу, на которой помещается запись, вставка находит по ней за O(log n), не перебирая карту.
+     */
+    private final TreeMap<Integer, IntArraySet> pagesByFreeSpace = new TreeMap<>();
+
+    /**
+     * Последовательности свободных страниц по длине.
+     */
+    private final TreeMap<Integer, ArrayDeque<Integer>> freeRuns = new TreeMap<>();
+
+    private final Map<IssueType, IntObjectHashMap<Task>> dirty = new EnumMap<>(IssueType.class);
+    private final Map<IssueType, IntArraySet> removed = new EnumMap<>(IssueType.class);
+    //внутри транзакции изменения только отмечаются и записываются одним сбросом при фиксации
+    private boolean inTransaction;
+
+    /**
+     * Страницы, изменённые при сбросе, по номеру первой страницы.
+     */
+    private final TreeMap<Integer, ByteBuffer> pendingPages = new TreeMap<>();
+
+    /**
+     * Старые места записей, перенесённых при текущем сбросе. Освобождаются после записи новых копий на диск,
+     * до этого их место не занимается другими записями.
+     */
+    private final List<Location> movedFrom = new ArrayList<>();
+
+    private long pagesWritten;
+    private long bytesWritten;
+
+    public PagedStorage(String fileName) {
+        this(fileName, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param fileName файл хранилища
+     * @param pageSize размер страницы в байтах для нового файла; у существующего файла используется размер из заголовка
+     * @throws IllegalArgumentException если размер страницы вне допустимых пределов
+     */
+    public PagedStorage(String fileName, int pageSize) {
+        this(fileName, pageSize, false, 0);
+    }
+
+    /**
+     * @param fileName             файл хранилища
+     * @param pageSize             размер страницы в байтах для нового файла
+     * @param lazyDescriptions     {@code true}, чтобы не держать описания задач в памяти и читать их из файла
+     * @param descriptionCacheSize наибольшее количество описаний в кеше в режиме ленивых описаний
+     * @throws IllegalArgumentException если размер страницы или кеша вне допустимых пределов
+     */
+    public PagedStorage(String fileName, int pageSize, boolean lazyDescriptions, int descriptionCacheSize) {
+        if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от " + MIN_PAGE_SIZE + " до " + MAX_PAGE_SIZE);
+        }
+        if (descriptionCacheSize < 0) {
+            throw new IllegalArgumentException("Размер кеша описаний не может быть отрицательным");
+        }
+        this.fileName = fileName;
+        this.lazyDescriptions = lazyDescriptions;
+        this.descriptionCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > descriptionCacheSize;
+            }
+        };
+        int size = pageSize;
+        Path path = Path.of(fileName);
+        try (FileChannel existing = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            if (existing.read(header, 0) == 12 && header.getInt(0) == MAGIC
+                    && header.getInt(8) >= MIN_PAGE_SIZE && header.getInt(8) <= MAX_PAGE_SIZE) {
+                size = header.getInt(8);
+            }
+        } catch (IOException e) {
+            // файла ещё нет, он будет создан при загрузке
+        }
+        this.pageSize = size;
+        for (IssueType type : IssueType.values()) {
+            directory.put(type, new IntObjectHashMap<>());
+            dirty.put(type, new IntObjectHashMap<>());
+            removed.put(type, new IntArraySet());
+        }
+    }
+
+    @Override
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Читает все страницы файла, строит по ним каталог записей и карту свободного места
+     * и загружает задачи в менеджер одной пачкой. Отсутствующий файл создаётся.
+     */
+    @Override
+    public void load(TaskManager manager) throws ManagerSaveException {
+        try {
+            channel = FileChannel.open(Path.of(fileName),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(pageSize);
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(pageSize).clear();
+                writeFully(header, 0);
+                channel.truncate(pageSize);
+                pageCount = 1;
+                return;
+            }
+            Map<IssueType, List<Task>> issues = scan();
+            List<Task> ordered = new ArrayList<>();
+            for (IssueType type : LOAD_ORDER) {
+                ordered.addAll(issues.get(type));
+            }
+            IssueBatchLoader.load(manager, ordered);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        } finally {
+            loadingFile = null;
+        }
+    }
+
+    private Map<IssueType, List<Task>> scan() throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Файл задач превышает 2 ГБ");
+        }
+        MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        loadingFile = file;
+        if (file.getInt(0) != MAGIC) {
+            throw new IOException("Файл не является страничным файлом задач");
+        }
+        if (file.getShort(4) != VERSION) {
+            throw new IOException("Неподдерживаемая версия страничного файла задач");
+        }
+        pageCount = (int) (size / pageSize);
+        freeSpace = new int[Math.max(16, pageCount)];
+        freeSpace[0] = -1;
+        pagesByFreeSpace.clear();
+        Map<IssueType, List<Task>> issues = new EnumMap<>(IssueType.class);
+        Map<IssueType, IntObjectHashMap<Integer>> seqs = new EnumMap<>(IssueType.class);
+        for (IssueType type : IssueType.values()) {
+            issues.put(type, new ArrayList<>());
+            seqs.put(type, new IntObjectHashMap<>());
+        }
+        int page = 1;
+        while (page < pageCount) {
+            ByteBuffer buffer = file.slice(page * pageSize, pageSize);
+            switch (buffer.get(0)) {
+                case SLOTTED_PAGE -> {
+                    int slotCount = buffer.getShort(2) & 0xFFFF;
+                    int used = 0;
+                    for (int slot = 0; slot < slotCount; slot++) {
+                        int length = slotLength(buffer, slot);
+                        if (length == 0) {
+                            continue;
+                        }
+                        ByteBuffer record = buffer.slice(slotOffset(buffer, slot), length);
+                        if (accept(record, new Location(page, slot, 1, 0), issues, seqs)) {
+                            used += length;
+                        }
+                    }
+                    setFreeSpace(page, pageSize - PAGE_HEADER_SIZE - slotCount * SLOT_SIZE - used);
+                    page++;
+                }
+                case EXTENT_PAGE -> {
+                    int pages = buffer.getInt(4);
+                    int length = buffer.getInt(8);
+                    if (pages < 1 || page + pages > pageCount || length > pages * pageSize - EXTENT_HEADER_SIZE) {
+                        throw new IOException("Страница " + page + " повреждена");
+                    }
+                    ByteBuffer record = file.slice(page * pageSize + EXTENT_HEADER_SIZE, length);
+                    accept(record, new Location(page, -1, pages, 0), issues, seqs);
+                    for (int i = 0; i < pages; i++) {
+                        setFreeSpace(page + i, -1);
+                    }
+                    page += pages;
+                }
+                default -> {
+                    int pages = Math.min(Math.max(buffer.getInt(4), 1), pageCount - page);
+                    addFreeRun(page, pages);
+                    page += pages;
+                }
+            }
+        }
+        if (!pendingPages.isEmpty()) {
+            writePending();
+        }
+        return issues;
+    }
+
+    /**
+     * Разбирает запись, найденную при загрузке, и заносит её в каталог. Из двух копий одной задачи
+     * остаётся копия с большим номером записи.
+     *
+     * @return {@code true}, если запись осталась в каталоге
+     */
+    private boolean accept(ByteBuffer record, Location location, Map<IssueType, List<Task>> issues,
+                           Map<IssueType, IntObjectHashMap<Integer>> seqs) throws IOException {
+        Task issue = decode(record, !lazyDescriptions);
+        if (lazyDescriptions) {
+            issue.setDescriptionSource(descriptionSource);
+        }
+        int seq = record.getInt(12);
+        writeSeq = Math.max(writeSeq, seq);
+        IssueType type = IssueType.of(issue);
+        int epicId = issue instanceof Subtask subtask ? subtask.getEpicId() : 0;
+        Location placed = new Location(location.page, location.slot, location.pages, epicId);
+        Integer knownSeq = seqs.get(type).get(issue.getId());
+        if (knownSeq != null) {
+            if (knownSeq > seq) {
+                discard(placed);
+                return false;
+            }
+            discard(directory.get(type).get(issue.getId()));
+            List<Task> list = issues.get(type);
+            list.removeIf(known -> known.getId() == issue.getId());
+        }
+        seqs.get(type).put(issue.getId(), (Integer) seq);
+        directory.get(type).put(issue.getId(), placed);
+        if (issue instanceof Subtask) {
+            epicSubtasks.computeIfAbsent(epicId, key -> new IntArraySet()).addInt(issue.getId());
+        }
+        issues.get(type).add(issue);
+        return true;
+    }
+
+    /**
+     * Освобождает устаревшую копию записи, найденную при загрузке.
+     */
+    private void discard(Location location) throws IOException {
+        if (location.isExtent()) {
+            freeExtent(location.page, location.pages);
+        } else {
+            ByteBuffer page = readPage(location.page);
+            int length = slotLength(page, location.slot);
+            setSlot(page, location.slot, 0, 0);
+            if (location.page < pageCount && freeSpace[location.page] >= 0) {
+                setFreeSpace(location.page, freeSpace[location.page] + length);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void issueAdded(Task issue) throws ManagerSaveException {
+        markDirty(issue);
+        flush();
+    }
+
+    @Override
+    public synchronized void issueUpdated(Task issue) throws ManagerSaveException {
+        markDirty(issue);
+        flush();
+    }
+
+    /**
+     * Удаляет запись задачи, а для эпика — и записи его подзадач.
+     */
+    @Override
+    public synchronized void issueRemoved(String issueType, int id) throws ManagerSaveException {
+        IssueType type = IssueType.fromName(issueType);
+        markRemovedWithSubtasks(type, id);
+        flush();
+    }
+
+    /**
+     * Удаляет записи всех задач типа, а для эпиков — и записи всех подзадач.
+     */
+    @Override
+    public synchronized void issuesCleared(String issueType) throws ManagerSaveException {
+        IssueType type = IssueType.fromName(issueType);
+        List<IssueType> types = type == IssueType.EPIC ? List.of(IssueType.EPIC, IssueType.SUBTASK) : List.of(type);
+        for (IssueType cleared : types) {
+            for (Integer id : new ArrayList<>(directory.get(cleared).keySet())) {
+                markRemoved(cleared, id);
+            }
+            dirty.get(cleared).clear();
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void issuesAdded(List<? extends Task> issues) throws ManagerSaveException {
+        issues.forEach(this::markDirty);
+        flush();
+    }
+
+    @Override
+    public synchronized void issuesUpdated(List<? extends Task> issues) throws ManagerSaveException {
+        issues.forEach(this::markDirty);
+        flush();
+    }
+
+    /**
+     * Удаляет записи задач, а для эпиков — и записи их подзадач, одним сбросом.
+     */
+    @Override
+    public synchronized void issuesRemoved(String issueType, Collection<Integer> ids) throws ManagerSaveException {
+        IssueType type = IssueType.fromName(issueType);
+        for (Integer id : ids) {
+            markRemovedWithSubtasks(type, id);
+        }
+        flush();
+    }
+
+    @Override
+    public synchronized void beginTransaction() {
+        inTransaction = true;
+    }
+
+    @Override
+    public synchronized void commitTransaction() throws ManagerSaveException {
+        inTransaction = false;
+        flush();
+    }
+
+    @Override
+    public synchronized void rollbackTransaction() {
+        inTransaction = false;
+        dirty.values().forEach(IntObjectHashMap::clear);
+        removed.values().forEach(IntArraySet::clear);
+    }
+
+    private void markRemovedWithSubtasks(IssueType type, int id) {
+        markRemoved(type, id);
+        if (type == IssueType.EPIC) {
+            IntArraySet subtasks = epicSubtasks.get(id);
+            if (subtasks != null) {
+                subtasks.forEachInt(subtaskId -> markRemoved(IssueType.SUBTASK, subtaskId));
+            }
+            // подзадачи, добавленные в той же транзакции, ещё не попали в epicSubtasks
+            IntArraySet added = new IntArraySet();
+            for (Task issue : dirty.get(IssueType.SUBTASK).values()) {
+                if (((Subtask) issue).getEpicId() == id) {
+                    added.addInt(issue.getId());
+                }
+            }
+            added.forEachInt(subtaskId -> markRemoved(IssueType.SUBTASK, subtaskId));
+        }
+    }
+
+    private void markDirty(Task issue) {
+        IssueType type = IssueType.of(issue);
+        removed.get(type).removeInt(issue.getId());
+        dirty.get(type).put(issue.getId(), issue);
+    }
+
+    private void markRemoved(IssueType type, int id) {
+        dirty.get(type).remove(id);
+        removed.get(type).addInt(id);
+    }
+
+    /**
+     * Записывает на диск задачи, изменённые и удалённые с последнего сброса. Каждая затронутая страница
+     * записывается один раз.
+     */
+    synchronized void flush() throws ManagerSaveException {
+        if (inTransaction) {
+            return;
+        }
+        try {
+            for (IssueType type : IssueType.values()) {
+                IntArraySet ids = removed.get(type);
+                for (int i = 0; i < ids.size(); i++) {
+                    Location location = directory.get(type).remove(ids.getInt(i));
+                    if (location != null) {
+                        release(type, ids.getInt(i), location);
+                    }
+                }
+                ids.clear();
+            }
+            for (IssueType type : IssueType.values()) {
+                for (Task issue : dirty.get(type).values()) {
+                    store(type, issue);
+                }
+                if (lazyDescriptions) {
+                    for (Task issue : dirty.get(type).values()) {
+                        issue.setDescriptionSource(descriptionSource);
+                    }
+                }
+                dirty.get(type).clear();
+            }
+            writePending();
+            if (!movedFrom.isEmpty()) {
+                channel.force(false);
+                for (Location location : movedFrom) {
+                    free(location);
+                }
+                movedFrom.clear();
+                writePending();
+            }
+        } catch (IOException e) {
+            pendingPages.clear();
+            movedFrom.clear();
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    /**
+     * Записывает задачу: на месте, если запись не стала длиннее или помещается на своей странице,
+     * иначе на новом месте, а старое освобождается после записи новой копии на диск.
+     */
+    private void store(IssueType type, Task issue) throws IOException {
+        byte[] record = encode(issue, ++writeSeq);
+        if (lazyDescriptions) {
+            descriptionCache.put(cacheKey(type, issue.getId()), issue.getDescription());
+        }
+        int epicId = issue instanceof Subtask subtask ? subtask.getEpicId() : 0;
+        Location location = directory.get(type).get(issue.getId());
+        if (location != null && !location.isExtent() && fitsInPage(record.length)
+                && replaceInPage(location, record)) {
+            if (location.epicId != epicId) {
+                unlinkSubtask(type, issue.getId(), location.epicId);
+                linkSubtask(type, issue.getId(), epicId);
+                directory.get(type).put(issue.getId(), new Location(location.page, location.slot, 1, epicId));
+            }
+            return;
+        }
+        Location placed = fitsInPage(record.length) ? insert(record, epicId) : insertExtent(record, epicId);
+        if (location != null) {
+            unlinkSubtask(type, issue.getId(), location.epicId);
+            movedFrom.add(location);
+        }
+        directory.get(type).put(issue.getId(), placed);
+        linkSubtask(type, issue.getId(), epicId);
+    }
+
+    private boolean fitsInPage(int length) {
+        return length + SLOT_SIZE <= pageSize - PAGE_HEADER_SIZE;
+    }
+
+    /**
+     * Заменяет запись в её слоте, если новая запись помещается на той же странице.
+     */
+    private boolean replaceInPage(Location location, byte[] record) throws IOException {
+        ByteBuffer page = readPage(location.page);
+        int length = slotLength(page, location.slot);
+        if (record.length <= length) {
+            page.put(slotOffset(page, location.slot), record);
+            setSlot(page, location.slot, slotOffset(page, location.slot), record.length);
+            setFreeSpace(location.page, freeSpace[location.page] + length - record.length);
+            return true;
+        }
+        if (freeSpace[location.page] + length < record.length) {
+            return false;
+        }
+        setSlot(page, location.slot, 0, 0);
+        setFreeSpace(location.page, freeSpace[location.page] + length);
+        place(page, location.page, location.slot, record);
+        return true;
+    }
+
+    /**
+     * Вставляет запись на страницу предыдущей вставки, если на ней хватает места, иначе на страницу
+     * с наименьшим достаточным свободным местом из {@link #pagesByFreeSpace} или на новую страницу.
+     */
+    private Location insert(byte[] record, int epicId) throws IOException {
+        int need = record.length + SLOT_SIZE;
+        int target = -1;
+        if (lastInsertPage < pageCount && freeSpace[lastInsertPage] >= need) {
+            target = lastInsertPage;
+        } else {
+            Map.Entry<Integer, IntArraySet> fitting = pagesByFreeSpace.ceilingEntry(need);
+            if (fitting != null) {
+                target = fitting.getValue().getInt(0);
+            }
+        }
+        ByteBuffer page;
+        if (target < 0) {
+            target = allocate(1);
+            page = ByteBuffer.allocate(pageSize);
+            page.put(0, SLOTTED_PAGE);
+            page.putShort(4, (short) pageSize);
+            setFreeSpace(target, pageSize - PAGE_HEADER_SIZE);
+            putPending(target, page);
+        } else {
+            page = readPage(target);
+        }
+        int slotCount = page.getShort(2) & 0xFFFF;
+        int slot = 0;
+        while (slot < slotCount && slotLength(page, slot) != 0) {
+            slot++;
+        }
+        place(page, target, slot, record);
+        lastInsertPage = target;
+        return new Location(target, slot, 1, epicId);
+    }
+
+    /**
+     * Размещает запись в указанном слоте страницы, при необходимости уплотняя записи страницы.
+     * Места на странице должно хватать.
+     */
+    private void place(ByteBuffer page, int pageNumber, int slot, byte[] record) {
+        int slotCount = page.getShort(2) & 0xFFFF;
+        int newSlots = Math.max(slotCount, slot + 1);
+        if ((page.getShort(4) & 0xFFFF) - PAGE_HEADER_SIZE - newSlots * SLOT_SIZE < record.length) {
+            compact(page);
+        }
+        int offset = (page.getShort(4) & 0xFFFF) - record.length;
+        page.put(offset, record);
+        page.putShort(4, (short) offset);
+        page.putShort(2, (short) newSlots);
+        setSlot(page, slot, offset, record.length);
+        setFreeSpace(pageNumber, freeSpace[pageNumber] - record.length - (newSlots - slotCount) * SLOT_SIZE);
+    }
+
+    /**
+     * Сдвигает записи страницы к её концу, убирая промежутки от удалённых и укороченных записей.
+     */
+    private void compact(ByteBuffer page) {
+        int slotCount = page.getShort(2) & 0xFFFF;
+        byte[] copy = new byte[pageSize];
+        page.get(0, copy);
+        int end = pageSize;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int length = slotLength(page, slot);
+            if (length > 0) {
+                end -= length;
+                page.put(end, copy, slotOffset(page, slot), length);
+                setSlot(page, slot, end, length);
+            }
+        }
+        page.putShort(4, (short) end);
+    }
+
+    /**
+     * Записывает запись, не помещающуюся на странице, на несколько страниц подряд.
+     */
+    private Location insertExtent(byte[] record, int epicId) {
+        int pages = (EXTENT_HEADER_SIZE + record.length + pageSize - 1) / pageSize;
+        int start = allocate(pages);
+        ByteBuffer extent = ByteBuffer.allocate(pages * pageSize);
+        extent.put(0, EXTENT_PAGE);
+        extent.putInt(4, pages);
+        extent.putInt(8, record.length);
+        extent.put(EXTENT_HEADER_SIZE, record);
+        for (int i = 0; i < pages; i++) {
+            setFreeSpace(start + i, -1);
+        }
+        putPending(start, extent);
+        return new Location(start, -1, pages, epicId);
+    }
+
+    /**
+     * Освобождает место записи и убирает подзадачу из списка её эпика.
+     */
+    private void release(IssueType type, int id, Location location) throws IOException {
+        free(location);
+        unlinkSubtask(type, id, location.epicId);
+        descriptionCache.remove(cacheKey(type, id));
+    }
+
+    /**
+     * Освобождает слот или страницы записи.
+     */
+    private void free(Location location) throws IOException {
+        if (location.isExtent()) {
+            freeExtent(location.page, location.pages);
+        } else {
+            ByteBuffer page = readPage(location.page);
+            setFreeSpace(location.page, freeSpace[location.page] + slotLength(page, location.slot));
+            setSlot(page, location.slot, 0, 0);
+        }
+    }
+
+    private void freeExtent(int start, int pages) {
+        ByteBuffer header = ByteBuffer.allocate(pageSize);
+        header.put(0, FREE_PAGE);
+        header.putInt(4, pages);
+        putPending(start, header);
+        addFreeRun(start, pages);
+    }
+
+    private void linkSubtask(IssueType type, int id, int epicId) {
+        if (type == IssueType.SUBTASK) {
+            epicSubtasks.computeIfAbsent(epicId, key -> new IntArraySet()).addInt(id);
+        }
+    }
+
+    private void unlinkSubtask(IssueType type, int id, int epicId) {
+        if (type == IssueType.SUBTASK) {
+            IntArraySet subtasks = epicSubtasks.get(epicId);
+            if (subtasks != null && subtasks.removeInt(id) && subtasks.isEmpty()) {
+                epicSubtasks.remove(epicId);
+            }
+        }
+    }
+
+    /**
+     * Выделяет страницы подряд из освобождённых или в конце файла.
+     *
+     * @return номер первой страницы
+     */
+    private int allocate(int pages) {
+        Map.Entry<Integer, ArrayDeque<Integer>> run = freeRuns.ceilingEntry(pages);
+        int start;
+        if (run != null) {
+            start = run.getValue().poll();
+            if (run.getValue().isEmpty()) {
+                freeRuns.remove(run.getKey());
+            }
+            if (run.getKey() > pages) {
+                freeExtent(start + pages, run.getKey() - pages);
+            }
+        } else {
+            start = pageCount;
+            pageCount += pages;
+            if (freeSpace.length < pageCount) {
+                freeSpace = Arrays.copyOf(freeSpace, Math.max(pageCount, freeSpace.length * 2));
+            }
+        }
+        for (int i = 0; i < pages; i++) {
+            setFreeSpace(start + i, -1);
+        }
+        return start;
+    }
+
+    /**
+     * Меняет свободное место страницы в карте и в {@link #pagesByFreeSpace}.
+     *
+     * @param bytes свободные байты страницы со слотами или -1 для остальных страниц
+     */
+    private void setFreeSpace(int page, int bytes) {
+        int previous = freeSpace[page];
+        if (previous > 0) {
+            IntArraySet pages = pagesByFreeSpace.get(previous);
+            if (pages.removeInt(page) && pages.isEmpty()) {
+                pagesByFreeSpace.remove(previous);
+            }
+        }
+        freeSpace[page] = bytes;
+        if (bytes > 0) {
+            pagesByFreeSpace.computeIfAbsent(bytes, key -> new IntArraySet()).addInt(page);
+        }
+    }
+
+    private void addFreeRun(int start, int pages) {
+        freeRuns.computeIfAbsent(pages, key -> new ArrayDeque<>()).add(start);
+        for (int i = 0; i < pages; i++) {
+            setFreeSpace(start + i, -1);
+        }
+    }
+
+    /**
+     * Возвращает страницу из изменённых при текущем сбросе или читает её из файла.
+     */
+    private ByteBuffer readPage(int page) throws IOException {
+        ByteBuffer buffer = pendingPages.get(page);
+        if (buffer == null) {
+            buffer = readFully(page, pageSize);
+            pendingPages.put(page, buffer);
+        }
+        return buffer;
+    }
+
+    private ByteBuffer readFully(int page, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, (long) page * pageSize + buffer.position()) < 0) {
+                throw new IOException("Страница " + page + " за концом файла");
+            }
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * Читает запись по её месту: из отображённого файла при загрузке, из изменённой страницы при сбросе
+     * или из файла.
+     */
+    private ByteBuffer readRecord(Location location) throws IOException {
+        if (loadingFile != null) {
+            ByteBuffer page = loadingFile.slice(location.page * pageSize, location.pages * pageSize);
+            return location.isExtent()
+                    ? page.slice(EXTENT_HEADER_SIZE, page.getInt(8))
+                    : page.slice(slotOffset(page, location.slot), slotLength(page, location.slot));
+        }
+        if (location.isExtent()) {
+            ByteBuffer header = readFully(location.page, EXTENT_HEADER_SIZE);
+            return readFully(location.page, EXTENT_HEADER_SIZE + header.getInt(8)).position(EXTENT_HEADER_SIZE).slice();
+        }
+        ByteBuffer page = pendingPages.get(location.page);
+        if (page == null) {
+            page = readFully(location.page, pageSize);
+        }
+        return page.slice(slotOffset(page, location.slot), slotLength(page, location.slot));
+    }
+
+    /**
+     * Читает описание задачи из кеша или из её записи в файле.
+     *
+     * @throws IllegalStateException если запись не удалось прочитать
+     */
+    private synchronized String loadDescription(Task issue) {
+        IssueType type = IssueType.of(issue);
+        Location location = directory.get(type).get(issue.getId());
+        if (location == null) {
+            return "";
+        }
+        try {
+            if (loadingFile != null) {
+                return readDescription(readRecord(location));
+            }
+            Long key = cacheKey(type, issue.getId());
+            String description = descriptionCache.get(key);
+            if (description == null) {
+                description = readDescription(readRecord(location));
+                descriptionReads++;
+                descriptionCache.put(key, description);
+            }
+            return description;
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать описание задачи " + issue.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private static Long cacheKey(IssueType type, int id) {
+        return ((long) type.ordinal() << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Запоминает страницы для записи, заменяя изменения страниц, которые они перекрывают.
+     */
+    private void putPending(int start, ByteBuffer pages) {
+        pendingPages.subMap(start, true, start + pages.capacity() / pageSize, false).clear();
+        pendingPages.put(start, pages);
+    }
+
+    private void writePending() throws IOException {
+        for (Map.Entry<Integer, ByteBuffer> entry : pendingPages.entrySet()) {
+            ByteBuffer buffer = entry.getValue();
+            buffer.clear();
+            writePages(entry.getKey(), buffer);
+            pagesWritten += buffer.capacity() / pageSize;
+            bytesWritten += buffer.capacity();
+        }
+        pendingPages.clear();
+    }
+
+    /**
+     * Записывает в файл страницы подряд, начиная с указанной.
+     *
+     * @param firstPage номер первой страницы
+     * @param pages     содержимое страниц, размер кратен размеру страницы
+     */
+    protected void writePages(int firstPage, ByteBuffer pages) throws IOException {
+        writeFully(pages, (long) firstPage * pageSize);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static int slotOffset(ByteBuffer page, int slot) {
+        return page.getShort(PAGE_HEADER_SIZE + slot * SLOT_SIZE) & 0xFFFF;
+    }
+
+    private static int slotLength(ByteBuffer page, int slot) {
+        return page.getShort(PAGE_HEADER_SIZE + slot * SLOT_SIZE + 2) & 0xFFFF;
+    }
+
+    private static void setSlot(ByteBuffer page, int slot, int offset, int length) {
+        page.putShort(PAGE_HEADER_SIZE + slot * SLOT_SIZE, (short) offset);
+        page.putShort(PAGE_HEADER_SIZE + slot * SLOT_SIZE + 2, (short) length);
+    }
+
+    static byte[] encode(Task issue, int seq) {
+        byte[] summary = issue.getSummary().getBytes(StandardCharsets.UTF_8);
+        byte[] description = issue.getDescription().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + 8 + summary.length + description.length);
+        record.put((byte) IssueType.of(issue).ordinal());
+        record.put((byte) issue.getStatus().ordinal());
+        record.putShort((short) 0);
+        record.putInt(issue.getId());
+        record.putInt(issue instanceof Subtask subtask ? subtask.getEpicId() : 0);
+        record.putInt(seq);
+        record.putInt(summary.length).put(summary);
+        record.putInt(description.length).put(description);
+        return record.array();
+    }
+
+    /**
+     * Разбирает запись задачи.
+     *
+     * @param withDescription {@code false}, чтобы не читать описание и оставить его пустым
+     */
+    static Task decode(ByteBuffer record, boolean withDescription) throws IOException {
+        try {
+            IssueType type = IssueType.values()[record.get(0)];
+            Status status = Status.values()[record.get(1)];
+            int id = record.getInt(4);
+            int epicId = record.getInt(8);
+            record.position(RECORD_HEADER_SIZE);
+            String summary = readString(record);
+            String description = withDescription ? readString(record) : "";
+            Task issue = switch (type) {
+                case SUBTASK -> new Subtask(summary, description, epicId);
+                case EPIC -> new Epic(summary, description);
+                case TASK -> new Task(summary, description);
+            };
+            issue.setId(id);
+            issue.setStatus(status);
+            return issue;
+        } catch (RuntimeException e) {
+            throw new IOException("Запись задачи повреждена: " + e.getMessage());
+        }
+    }
+
+    private static String readDescription(ByteBuffer record) throws IOException {
+        try {
+            record.position(RECORD_HEADER_SIZE);
+            record.position(RECORD_HEADER_SIZE + 4 + record.getInt());
+            return readString(record);
+        } catch (RuntimeException e) {
+            throw new IOException("Запись задачи повреждена: " + e.getMessage());
+        }
+    }
+
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Возвращает количество страниц файла вместе со страницей заголовка.
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public boolean isLazyDescriptions() {
+        return lazyDescriptions;
+    }
+
+    /**
+     * Возвращает количество описаний, прочитанных из файла мимо кеша, с момента открытия хранилища.
+     */
+    public synchronized long getDescriptionReads() {
+        return descriptionReads;
+    }
+
+    /**
+     * Возвращает количество страниц, записанных с момента открытия хранилища.
+     */
+    public long getPagesWritten() {
+        return pagesWritten;
+    }
+
+    /**
+     * Возвращает количество байт, записанных с момента открытия хранилища.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public synchronized void close() throws ManagerSaveException {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException(e.getMessage());
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
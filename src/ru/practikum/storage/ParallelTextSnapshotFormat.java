@@ -0,0 +1,169 @@
+package ru.practikum.storage;
+
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Epic;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+import ru.practikum.utils.IntObjectHashMap;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Текстовый формат файла задач с параллельной загрузкой больших файлов.
+ * <p>
+ * Файл отображается в память и делится на фрагменты, границы которых сдвигаются к ближайшему
+ * переводу строки (в UTF-8 байт {@code \n} не встречается внутри многобайтовых символов).
+ * Фрагменты разбираются {@link TaskTextReader} параллельно в {@link ForkJoinPool}, затем задачи
+ * в исходном порядке загружаются в менеджер одним вызовом (см. {@link IssueBatchLoader}):
+ * индексы и статусы эпиков строятся за один проход, история просмотров не пишется.
+ * Запись выполняется так же, как в {@link TextSnapshotFormat}.
+ */
+public class ParallelTextSnapshotFormat extends TextSnapshotFormat {
+
+    /**
+     * Минимальный размер фрагмента: файлы меньше него разбираются одним фрагментом.
+     */
+    public static final int MIN_CHUNK_BYTES = 1 << 20;
+
+    private final ForkJoinPool pool;
+
+    public ParallelTextSnapshotFormat() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool пул, в котором разбираются фрагменты файла
+     */
+    public ParallelTextSnapshotFormat(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Разбор одного фрагмента файла. Повреждённые записи пропускаются с сообщением.
+     */
+    private static final class ChunkParser extends RecursiveTask<List<Task>> {
+
+        private static final long serialVersionUID = 1L;
+
+        // задача не сериализуется: фрагмент отображённого файла существует только в этом процессе
+        private final transient ByteBuffer chunk;
+
+        private ChunkParser(ByteBuffer chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            CharBuffer chars = StandardCharsets.UTF_8.decode(chunk);
+            List<Task> issues = new ArrayList<>(chars.remaining() / 96);
+            TaskTextReader reader = new TaskTextReader(
+                    new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()));
+            while (true) {
+                try {
+                    Task issue = reader.next();
+                    if (issue == null) {
+                        return issues;
+                    }
+                    issues.add(issue);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void read(Path path, TaskManager manager) throws IOException {
+        IssueBatchLoader.load(manager, parse(path));
+    }
+
+    /**
+     * Разбирает файл параллельно.
+     *
+     * @param path файл задач
+     * @return задачи в порядке следования в файле
+     */
+    public List<Task> parse(Path path) throws IOException {
+        MappedByteBuffer file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Файл задач превышает 2 ГБ");
+            }
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        List<ChunkParser> parsers = new ArrayList<>();
+        for (ByteBuffer chunk : split(file, pool.getParallelism() * 4)) {
+            ChunkParser parser = new ChunkParser(chunk);
+            parsers.add(parser);
+            pool.execute(parser);
+        }
+        List<Task> issues = new ArrayList<>();
+        for (ChunkParser parser : parsers) {
+            issues.addAll(parser.join());
+        }
+        assignListedSubtasks(issues);
+        return issues;
+    }
+
+    /**
+     * Делит буфер на фрагменты, заканчивающиеся переводом строки или концом файла.
+     */
+    private static List<ByteBuffer> split(ByteBuffer file, int targetChunks) {
+        int size = file.limit();
+        int chunkSize = Math.max(MIN_CHUNK_BYTES, size / Math.max(targetChunks, 1) + 1);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < size) {
+            int end = Math.min(size, start + chunkSize);
+            while (end < size && file.get(end - 1) != '\n') {
+                end++;
+            }
+            chunks.add(file.slice(start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Назначает эпик подзадачам без {@code parentEpicId} по спискам {@code subtaskIds} эпиков.
+     * Внутри фрагмента это делает {@link TaskTextReader}, здесь обрабатываются эпики из других фрагментов.
+     */
+    private static void assignListedSubtasks(List<Task> issues) {
+        IntObjectHashMap<Integer> epicOfSubtask = null;
+        for (int i = 0; i < issues.size(); i++) {
+            if (issues.get(i) instanceof Subtask subtask && subtask.getEpicId() == 0) {
+                if (epicOfSubtask == null) {
+                    epicOfSubtask = new IntObjectHashMap<>();
+                    for (Task issue : issues) {
+                        if (issue instanceof Epic epic) {
+                            Integer epicId = epic.getId();
+                            IntObjectHashMap<Integer> index = epicOfSubtask;
+                            epic.getSubtasks().forEachInt(subtaskId -> index.put(subtaskId, epicId));
+                        }
+                    }
+                }
+                Integer epicId = epicOfSubtask.get(subtask.getId());
+                if (epicId != null) {
+                    Subtask assigned = new Subtask(subtask.getSummary(), subtask.getDescription(), epicId);
+                    assigned.setId(subtask.getId());
+                    assigned.setStatus(subtask.getStatus());
+                    issues.set(i, assigned);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practikum.storage;
+
+import ru.practikum.manager.InMemoryTaskManager;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Формат файла с полным состоянием всех задач, используемый {@link SnapshotStorage}.
+ */
+public interface SnapshotFormat {
+
+    /**
+     * Записывает все задачи в файл, заменяя его содержимое.
+     *
+     * @param path      файл
+     * @param tasksList задачи, разбитые по типам
+     */
+    void write(Path path, Map<String, Map<Integer, Task>> tasksList) throws IOException;
+
+    /**
+     * Загружает задачи из файла в менеджер. Эпики добавляются раньше своих подзадач.
+     *
+     * @param path    файл
+     * @param manager менеджер задач
+     */
+    void read(Path path, TaskManager manager) throws IOException;
+
+    /**
+     * Переписывает файл задач из одного формата в другой, например для импорта текстового файла
+     * в двоичный формат и обратно.
+     *
+     * @param source       исходный файл
+     * @param sourceFormat формат исходного файла
+     * @param target       файл, в который будут записаны задачи
+     * @param targetFormat формат нового файла
+     */
+    static void convert(Path source, SnapshotFormat sourceFormat, Path target, SnapshotFormat targetFormat)
+            throws IOException {
+        TaskManager scratch = new InMemoryTaskManager<Task>();
+        sourceFormat.read(source, scratch);
+        targetFormat.write(target, scratch.getTasksList());
+    }
+}
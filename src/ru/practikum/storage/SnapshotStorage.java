@@ -0,0 +1,147 @@
+package ru.practikum.storage;
+
+import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Хранилище, которое после каждого изменения полностью перезаписывает файл
+ * текущим состоянием всех задач. По умолчанию используется текстовый формат {@link TaskLineFormat}
+ * с параллельной загрузкой ({@link ParallelTextSnapshotFormat}), для быстрого запуска на больших досках —
+ * двоичный {@link BinarySnapshotFormat}.
+ */
+public class SnapshotStorage implements TaskStorage {
+
+    private final String fileName;
+    private final SnapshotFormat format;
+    private TaskManager manager;
+    //внутри транзакции файл перезаписывается один раз при фиксации
+    private boolean inTransaction;
+    private boolean changed;
+
+    public SnapshotStorage(String fileName) {
+        this(fileName, new ParallelTextSnapshotFormat());
+    }
+
+    /**
+     * @param fileName имя файла задач
+     * @param format   формат файла
+     */
+    public SnapshotStorage(String fileName, SnapshotFormat format) {
+        this.fileName = fileName;
+        this.format = format;
+    }
+
+    @Override
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Загружает задачи из файла.
+     *
+     * @throws ManagerSaveException если файл не существует или не является файлом
+     */
+    @Override
+    public void load(TaskManager manager) throws ManagerSaveException {
+        this.manager = manager;
+        File file = new File(fileName);
+        if (!file.exists() || !file.isFile()) {
+            throw new ManagerSaveException("Файл задач не является файлом или не существует");
+        }
+        try {
+            format.read(file.toPath(), manager);
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Сохраняет текущие задачи в указанный файл.
+     *
+     * @param fileName имя файла
+     * @throws ManagerSaveException если произошла ошибка при записи в файл
+     */
+    public void save(String fileName) throws ManagerSaveException {
+        try {
+            format.write(Path.of(fileName), manager.getTasksList());
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+    }
+
+    /**
+     * Перезаписывает файл или, внутри транзакции, откладывает запись до фиксации.
+     */
+    private void saveChanges() throws ManagerSaveException {
+        if (inTransaction) {
+            changed = true;
+        } else {
+            save(fileName);
+        }
+    }
+
+    @Override
+    public void issueAdded(Task issue) throws ManagerSaveException {
+        saveChanges();
+    }
+
+    @Override
+    public void issueUpdated(Task issue) throws ManagerSaveException {
+        saveChanges();
+    }
+
+    @Override
+    public void issueRemoved(String issueType, int id) throws ManagerSaveException {
+        saveChanges();
+    }
+
+    @Override
+    public void issuesCleared(String issueType) throws ManagerSaveException {
+        saveChanges();
+    }
+
+    @Override
+    public void issuesAdded(List<? extends Task> issues) throws ManagerSaveException {
+        saveChanges();
+    }
+
+    @Override
+    public void issuesUpdated(List<? extends Task> issues) throws ManagerSaveException {
+        saveChanges();
+    }
+
+    @Override
+    public void issuesRemoved(String issueType, Collection<Integer> ids) throws ManagerSaveException {
+        saveChanges();
+    }
+
+    @Override
+    public void beginTransaction() {
+        inTransaction = true;
+        changed = false;
+    }
+
+    @Override
+    public void commitTransaction() throws ManagerSaveException {
+        inTransaction = false;
+        if (changed) {
+            save(fileName);
+        }
+    }
+
+    @Override
+    public void rollbackTransaction() {
+        inTransaction = false;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practikum.storage;
+
+import ru.practikum.task.Task;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Текстовый формат файла задач: одна задача на строку в виде, совпадающем с {@link Task#toString()}
+ * (значения в кавычках экранируются), сначала эпики, затем подзадачи, затем задачи.
+ * Разбор и запись выполняют {@link TaskTextReader} и {@link TaskTextWriter}.
+ */
+public final class TaskLineFormat {
+
+    private TaskLineFormat() {
+    }
+
+    /**
+     * Разбирает строку файла задач.
+     *
+     * @param line строка вида {@code Task{id='1', ...}}
+     * @return задача соответствующего типа
+     * @throws IllegalArgumentException если строка не является записью задачи
+     */
+    public static Task parse(String line) {
+        return TaskTextReader.parseLine(line);
+    }
+
+    public static String format(Task issue) {
+        return TaskTextWriter.formatLine(issue);
+    }
+
+    /**
+     * Записывает все задачи в текстовом формате.
+     *
+     * @param writer    поток для записи
+     * @param tasksList задачи, разбитые по типам
+     */
+    public static void writeSnapshot(Writer writer, Map<String, Map<Integer, Task>> tasksList) throws IOException {
+        TaskTextWriter taskWriter = new TaskTextWriter(writer);
+        for (String issueType : new String[]{"Epic", "Subtask", "Task"}) {
+            for (Task issue : tasksList.get(issueType).values()) {
+                taskWriter.write(issue);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practikum.storage;
+
+import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Способ хранения задач {@link ru.practikum.manager.FileBackedTaskManager} на диске.
+ * <p>
+ * Менеджер сначала вызывает {@link #load(TaskManager)}, передавая менеджер в памяти,
+ * который нужно заполнить, а затем сообщает хранилищу о каждом изменении уже после того,
+ * как оно применено в памяти.
+ */
+public interface TaskStorage extends AutoCloseable {
+
+    /**
+     * Возвращает имя основного файла хранилища.
+     */
+    String getFileName();
+
+    /**
+     * Загружает задачи из файла в менеджер. Хранилище может запомнить менеджер,
+     * чтобы читать из него текущее состояние при сохранении.
+     *
+     * @param manager менеджер задач в памяти
+     * @throws ManagerSaveException если данные не удалось прочитать
+     */
+    void load(TaskManager manager) throws ManagerSaveException;
+
+    /**
+     * Резервирует место под следующее изменение. Менеджер вызывает метод до того, как применить
+     * изменение в памяти, поэтому хранилище может задержать или отклонить изменение, которое не успевает сохранить.
+     *
+     * @throws ManagerSaveException если хранилище отклоняет изменение
+     */
+    default void reserve() throws ManagerSaveException {
+    }
+
+    /**
+     * Отменяет резерв, если изменение не удалось применить в памяти.
+     */
+    default void release() {
+    }
+
+    void issueAdded(Task issue) throws ManagerSaveException;
+
+    void issueUpdated(Task issue) throws ManagerSaveException;
+
+    void issueRemoved(String issueType, int id) throws ManagerSaveException;
+
+    void issuesCleared(String issueType) throws ManagerSaveException;
+
+    /**
+     * Сообщает о задачах, добавленных одной пакетной операцией. Хранилище может сохранить их одной записью;
+     * по умолчанию о каждой задаче сообщается отдельно.
+     */
+    default void issuesAdded(List<? extends Task> issues) throws ManagerSaveException {
+        for (Task issue : issues) {
+            issueAdded(issue);
+        }
+    }
+
+    /**
+     * Сообщает о задачах, обновлённых одной пакетной операцией.
+     */
+    default void issuesUpdated(List<? extends Task> issues) throws ManagerSaveException {
+        for (Task issue : issues) {
+            issueUpdated(issue);
+        }
+    }
+
+    /**
+     * Сообщает о задачах одного типа, удалённых одной пакетной операцией.
+     */
+    default void issuesRemoved(String issueType, Collection<Integer> ids) throws ManagerSaveException {
+        for (Integer id : ids) {
+            issueRemoved(issueType, id);
+        }
+    }
+
+    /**
+     * Начинает транзакцию: о её изменениях менеджер сообщает подряд, а затем вызывает
+     * {@link #commitTransaction()}. Хранилище может копить изменения до фиксации и сохранить их одной записью;
+     * по умолчанию каждое изменение сохраняется сразу.
+     */
+    default void beginTransaction() {
+    }
+
+    /**
+     * Сохраняет изменения транзакции, о которых было сообщено после {@link #beginTransaction()}.
+     *
+     * @throws ManagerSaveException если изменения не удалось сохранить
+     */
+    default void commitTransaction() throws ManagerSaveException {
+    }
+
+    /**
+     * Отбрасывает ещё не сохранённые изменения транзакции, если о них не удалось сообщить до конца.
+     */
+    default void rollbackTransaction() {
+    }
+
+    /**
+     * Ждёт, пока сообщённые хранилищу изменения будут сохранены согласно его политике надёжности.
+     * Менеджер вызывает метод после каждого изменения вне своей блокировки, чтобы ожидание записи
+     * одних вызывающих не мешало другим применять изменения в памяти.
+     *
+     * @throws ManagerSaveException если изменения не удалось сохранить
+     */
+    default void sync() throws ManagerSaveException {
+    }
+
+    @Override
+    void close() throws ManagerSaveException;
+}
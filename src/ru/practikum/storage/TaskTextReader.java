@@ -0,0 +1,389 @@
+package ru.practikum.storage;
+
+import ru.practikum.task.Epic;
+import ru.practikum.task.Status;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+import ru.practikum.utils.IntObjectHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * Потоковый разбор текстового формата задач за один проход по символам, без регулярных выражений.
+ * <p>
+ * Запись занимает одну строку: {@code Тип{ключ=значение, ключ=значение, ...}}. Значение бывает
+ * в кавычках ({@code 'текст'}), списком ({@code [1, 2]}) или без кавычек ({@code NEW}).
+ * Внутри кавычек символы {@code '}, {@code \} и переводы строк экранируются обратной косой чертой
+ * ({@code \'}, {@code \\}, {@code \n}, {@code \r}), поэтому {@code ", "} и {@code =} в названии
+ * разбираются правильно. Файлы, записанные через {@link Task#toString()} без экранирования, тоже читаются.
+ * <p>
+ * Идентификаторы и статусы разбираются прямо из буфера, строки создаются только для названия и описания.
+ * Список {@code subtaskIds} эпика восстанавливается; подзадача без {@code parentEpicId} относится к эпику,
+ * в списке которого она указана.
+ */
+public class TaskTextReader implements Closeable {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private long lineNumber;
+
+    private final StringBuilder token = new StringBuilder();
+    private final IntObjectHashMap<Integer> epicOfSubtask = new IntObjectHashMap<>();
+
+    /**
+     * Поля текущей записи.
+     */
+    private int id;
+    private int epicId;
+    private String summary;
+    private String description;
+    private Status status;
+    private Epic epic;
+
+    public TaskTextReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Разбирает одну запись.
+     *
+     * @param line строка с записью
+     * @return задача соответствующего типа
+     * @throws IllegalArgumentException если строка не является записью задачи
+     */
+    public static Task parseLine(String line) {
+        try (TaskTextReader reader = new TaskTextReader(new StringReader(line))) {
+            Task issue = reader.next();
+            if (issue == null) {
+                throw new IllegalArgumentException("Пустая строка задачи");
+            }
+            return issue;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    /**
+     * Читает следующую запись, пропуская пустые строки.
+     *
+     * @return задача или {@code null}, если записи закончились
+     * @throws IllegalArgumentException если запись повреждена; такая строка пропускается,
+     *                                  и чтение можно продолжить следующим вызовом
+     * @throws IOException              если не удалось прочитать поток
+     */
+    public Task next() throws IOException {
+        int c;
+        do {
+            c = read();
+            if (c == '\n') {
+                lineNumber++;
+            }
+        } while (c == '\n' || c == '\r');
+        if (c == EOF) {
+            return null;
+        }
+        lineNumber++;
+        try {
+            return parseRecord(c);
+        } catch (IllegalArgumentException e) {
+            skipLine();
+            throw new IllegalArgumentException("Строка " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    private Task parseRecord(int first) throws IOException {
+        token.setLength(0);
+        int c = first;
+        while (c != '{') {
+            if (c == EOF || c == '\n') {
+                throw new IllegalArgumentException("нет начала записи");
+            }
+            token.append((char) c);
+            c = read();
+        }
+        char kind = kindOf(token);
+        id = 0;
+        epicId = 0;
+        summary = "";
+        description = "";
+        status = Status.NEW;
+        epic = kind == 'E' ? new Epic("", "") : null;
+
+        c = skipSpaces(read());
+        if (c != '}') {
+            while (true) {
+                token.setLength(0);
+                while (c != '=') {
+                    if (c == EOF || c == '\n' || c == '}') {
+                        throw new IllegalArgumentException("нет значения у поля " + token);
+                    }
+                    token.append((char) c);
+                    c = read();
+                }
+                c = readField(fieldOf(token));
+                c = skipSpaces(c);
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw new IllegalArgumentException("ожидалась запятая");
+                }
+                c = skipSpaces(read());
+            }
+        }
+        c = read();
+        while (c == ' ' || c == '\r') {
+            c = read();
+        }
+        if (c != '\n' && c != EOF) {
+            throw new IllegalArgumentException("лишние символы после записи");
+        }
+        return build(kind);
+    }
+
+    private Task build(char kind) {
+        Task issue;
+        switch (kind) {
+            case 'S' -> {
+                if (epicId == 0) {
+                    Integer listedIn = epicOfSubtask.get(id);
+                    epicId = listedIn == null ? 0 : listedIn;
+                }
+                issue = new Subtask(summary, description, epicId);
+                issue.setStatus(status);
+            }
+            case 'E' -> {
+                issue = epic;
+                issue.setSummary(summary);
+                issue.setDescription(description);
+                issue.setStatus(status);
+                Integer listingEpicId = id;
+                epic.getSubtasks().forEachInt(subtaskId -> epicOfSubtask.put(subtaskId, listingEpicId));
+            }
+            default -> issue = new Task(summary, description, status);
+        }
+        issue.setId(id);
+        return issue;
+    }
+
+    private static char kindOf(CharSequence type) {
+        if (contentEquals(type, "Task")) {
+            return 'T';
+        } else if (contentEquals(type, "Subtask")) {
+            return 'S';
+        } else if (contentEquals(type, "Epic")) {
+            return 'E';
+        }
+        throw new IllegalArgumentException("неизвестный тип задачи " + type);
+    }
+
+    private static final int ID = 0;
+    private static final int SUMMARY = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int STATUS = 3;
+    private static final int PARENT_EPIC_ID = 4;
+    private static final int SUBTASK_IDS = 5;
+    private static final int UNKNOWN = 6;
+
+    private static int fieldOf(CharSequence key) {
+        if (contentEquals(key, "id")) {
+            return ID;
+        } else if (contentEquals(key, "summary")) {
+            return SUMMARY;
+        } else if (contentEquals(key, "description")) {
+            return DESCRIPTION;
+        } else if (contentEquals(key, "status")) {
+            return STATUS;
+        } else if (contentEquals(key, "parentEpicId")) {
+            return PARENT_EPIC_ID;
+        } else if (contentEquals(key, "subtaskIds")) {
+            return SUBTASK_IDS;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Читает значение поля и сохраняет его.
+     *
+     * @return первый символ после значения
+     */
+    private int readField(int field) throws IOException {
+        int c = read();
+        if (c == '[') {
+            return readList(field);
+        }
+        token.setLength(0);
+        if (c == '\'') {
+            readQuoted();
+            c = read();
+        } else {
+            while (c != ',' && c != '}' && c != '\n' && c != EOF) {
+                token.append((char) c);
+                c = read();
+            }
+            trimEnd();
+        }
+        switch (field) {
+            case ID -> id = parseInt(token);
+            case PARENT_EPIC_ID -> epicId = parseInt(token);
+            case SUMMARY -> summary = token.toString();
+            case DESCRIPTION -> description = token.toString();
+            case STATUS -> status = statusOf(token);
+            default -> {
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Читает значение в кавычках до закрывающей кавычки. Старые файлы не экранировали кавычки,
+     * поэтому кавычка считается закрывающей, только если за ней идёт конец поля.
+     */
+    private void readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF || c == '\n') {
+                throw new IllegalArgumentException("незакрытая кавычка");
+            }
+            if (c == '\\') {
+                int escaped = read();
+                switch (escaped) {
+                    case 'n' -> token.append('\n');
+                    case 'r' -> token.append('\r');
+                    case '\'', '\\' -> token.append((char) escaped);
+                    case EOF -> throw new IllegalArgumentException("незавершённое экранирование");
+                    default -> token.append('\\').append((char) escaped);
+                }
+            } else if (c == '\'') {
+                int next = peek();
+                if (next == ',' || next == '}' || next == ' ' || next == '\n' || next == '\r' || next == EOF) {
+                    return;
+                }
+                token.append('\'');
+            } else {
+                token.append((char) c);
+            }
+        }
+    }
+
+    private int readList(int field) throws IOException {
+        int c = skipSpaces(read());
+        while (c != ']') {
+            int value = 0;
+            boolean digits = false;
+            boolean negative = c == '-';
+            if (negative) {
+                c = read();
+            }
+            while (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits = true;
+                c = read();
+            }
+            if (!digits) {
+                throw new IllegalArgumentException("ожидалось число в списке");
+            }
+            if (field == SUBTASK_IDS && epic != null) {
+                epic.getSubtasks().addInt(negative ? -value : value);
+            }
+            c = skipSpaces(c);
+            if (c == ',') {
+                c = skipSpaces(read());
+            } else if (c != ']') {
+                throw new IllegalArgumentException("незакрытый список");
+            }
+        }
+        return read();
+    }
+
+    private static int parseInt(CharSequence value) {
+        try {
+            return Integer.parseInt(value, 0, value.length(), 10);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("некорректное число " + value);
+        }
+    }
+
+    private static Status statusOf(CharSequence value) {
+        for (Status candidate : Status.values()) {
+            if (contentEquals(value, candidate.name())) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("неизвестный статус " + value);
+    }
+
+    private static boolean contentEquals(CharSequence value, String expected) {
+        if (value.length() != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (value.charAt(i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void trimEnd() {
+        int length = token.length();
+        while (length > 0 && token.charAt(length - 1) == ' ') {
+            length--;
+        }
+        token.setLength(length);
+    }
+
+    private int skipSpaces(int c) throws IOException {
+        while (c == ' ') {
+            c = read();
+        }
+        return c;
+    }
+
+    private void skipLine() throws IOException {
+        int c = position > 0 && buffer[position - 1] == '\n' ? '\n' : read();
+        while (c != '\n' && c != EOF) {
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,112 @@
+package ru.practikum.storage;
+
+import ru.practikum.task.Epic;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+import ru.practikum.utils.IntArraySet;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Запись задач в текстовом формате, который читает {@link TaskTextReader}.
+ * Запись совпадает с {@link Task#toString()}, но значения в кавычках экранируются.
+ */
+public class TaskTextWriter implements Closeable, Flushable {
+
+    private final Writer writer;
+
+    public TaskTextWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Форматирует одну запись без перевода строки.
+     */
+    public static String formatLine(Task issue) {
+        StringWriter line = new StringWriter(128);
+        try {
+            new TaskTextWriter(line).writeRecord(issue);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Записывает задачу и перевод строки.
+     */
+    public void write(Task issue) throws IOException {
+        writeRecord(issue);
+        writer.write('\n');
+    }
+
+    private void writeRecord(Task issue) throws IOException {
+        if (issue instanceof Subtask subtask) {
+            writer.write("Subtask{parentEpicId='");
+            writeInt(subtask.getEpicId());
+            writer.write("', ");
+        } else if (issue instanceof Epic epic) {
+            writer.write("Epic{subtaskIds=[");
+            IntArraySet subtasks = epic.getSubtasks();
+            for (int i = 0; i < subtasks.size(); i++) {
+                if (i > 0) {
+                    writer.write(", ");
+                }
+                writeInt(subtasks.getInt(i));
+            }
+            writer.write("], ");
+        } else {
+            writer.write("Task{");
+        }
+        writer.write("id='");
+        writeInt(issue.getId());
+        writer.write("', summary='");
+        writeEscaped(issue.getSummary());
+        writer.write("', description='");
+        writeEscaped(issue.getDescription());
+        writer.write("', status=");
+        writer.write(issue.getStatus().name());
+        writer.write('}');
+    }
+
+    private void writeInt(int value) throws IOException {
+        writer.write(Integer.toString(value));
+    }
+
+    private void writeEscaped(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped = switch (c) {
+                case '\'' -> "\\'";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                default -> null;
+            };
+            if (escaped != null) {
+                writer.write(value, start, i - start);
+                writer.write(escaped);
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practikum.storage;
+
+import ru.practikum.manager.TaskManager;
+import ru.practikum.task.Task;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Текстовый формат файла задач: одна задача на строку, см. {@link TaskLineFormat}.
+ */
+public class TextSnapshotFormat implements SnapshotFormat {
+
+    @Override
+    public void write(Path path, Map<String, Map<Integer, Task>> tasksList) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            TaskLineFormat.writeSnapshot(writer, tasksList);
+        }
+    }
+
+    /**
+     * Читает файл потоково. Повреждённая запись пропускается с сообщением, остальные загружаются.
+     */
+    @Override
+    public void read(Path path, TaskManager manager) throws IOException {
+        try (TaskTextReader reader = new TaskTextReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            while (true) {
+                Task issue;
+                try {
+                    issue = reader.next();
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    continue;
+                }
+                if (issue == null) {
+                    return;
+                }
+                manager.addIssue(issue);
+            }
+        }
+    }
+}
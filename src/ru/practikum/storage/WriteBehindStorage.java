@@ -0,0 +1,304 @@
+package ru.practikum.storage;
+
+import ru.practikum.exceptions.ManagerSaveException;
+import ru.practikum.manager.TaskManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал в формате {@link JournalStorage} с отложенной записью.
+ * <p>
+ * Изменение применяется в памяти сразу, а запись журнала передаётся единственному потоку записи
+ * через очередь. Поток забирает из очереди всё накопившееся, записывает одной пачкой и сбрасывает на диск.
+ * Количество несохранённых изменений ограничено ёмкостью очереди: место резервируется
+ * в {@link #reserve()} до применения изменения, и при заполненной очереди вызывающий ждёт
+ * или получает отказ в зависимости от {@link OverflowPolicy}.
+ * <p>
+ * Каждой записи присваивается номер. Номер последней записи текущего потока возвращает
+ * {@link #getLastWriteSeq()}, дождаться её сохранения можно через {@link #awaitDurable(long)}.
+ */
+public class WriteBehindStorage extends JournalStorage {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Свободные места в очереди.
+     */
+    private final Semaphore slots;
+    private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+    private final Object monitor = new Object();
+    private long appendedSeq;
+    private long durableSeq;
+    private IOException failure;
+    private final ThreadLocal<long[]> lastWriteSeq = ThreadLocal.withInitial(() -> new long[1]);
+
+    private FileChannel channel;
+    private Thread writer;
+    private volatile boolean closing;
+
+    public WriteBehindStorage(String fileName) {
+        this(fileName, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param fileName       имя файла журнала
+     * @param capacity       максимальное количество несохранённых изменений
+     * @param overflowPolicy поведение при заполненной очереди
+     * @throws IllegalArgumentException если ёмкость меньше 1
+     */
+    public WriteBehindStorage(String fileName, int capacity, OverflowPolicy overflowPolicy) {
+        super(fileName);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость очереди должна быть положительной");
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.slots = new Semaphore(capacity);
+    }
+
+    /**
+     * Воспроизводит журнал, открывает его для дозаписи и запускает поток записи.
+     */
+    @Override
+    public void load(TaskManager manager) throws ManagerSaveException {
+        Path path = Path.of(getFileName());
+        try {
+            if (Files.exists(path)) {
+                truncateTornRecord(path);
+                replay(path, manager);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new ManagerSaveException(e.getMessage());
+        }
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Занимает место в очереди. При {@link OverflowPolicy#BLOCK} ждёт освобождения места,
+     * при {@link OverflowPolicy#REJECT} сразу отказывает.
+     *
+     * @throws ManagerSaveException если очередь заполнена, ожидание прервано или запись в файл уже не удалась
+     */
+    @Override
+    public void reserve() throws ManagerSaveException {
+        checkFailure();
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            if (!slots.tryAcquire()) {
+                throw new ManagerSaveException("Очередь записи заполнена, изменение отклонено");
+            }
+        } else {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание места в очереди записи прервано");
+            }
+        }
+    }
+
+    @Override
+    public void release() {
+        slots.release();
+    }
+
+    /**
+     * Ставит запись в очередь потока записи. Место в очереди должно быть занято через {@link #reserve()}.
+     */
+    @Override
+    protected void append(String record) throws ManagerSaveException {
+        checkFailure();
+        long seq;
+        synchronized (monitor) {
+            seq = ++appendedSeq;
+            queue.add(record);
+        }
+        lastWriteSeq.get()[0] = seq;
+    }
+
+    /**
+     * Ставит записи в очередь одной записью. Если записей нет, например у транзакции без изменений в файле,
+     * освобождает место, занятое под изменение, иначе оно осталось бы занятым навсегда.
+     */
+    @Override
+    protected void append(List<String> records) throws ManagerSaveException {
+        if (records.isEmpty()) {
+            release();
+            return;
+        }
+        super.append(records);
+    }
+
+    private void checkFailure() throws ManagerSaveException {
+        synchronized (monitor) {
+            if (failure != null) {
+                throw new ManagerSaveException(failure.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Цикл потока записи: забирает из очереди все записи, записывает их одной пачкой и сбрасывает на диск.
+     */
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while (true) {
+            try {
+                String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closing) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            for (String record : batch) {
+                bytes.writeBytes((record + '\n').getBytes(StandardCharsets.UTF_8));
+            }
+            IOException error = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (monitor) {
+                if (error == null) {
+                    durableSeq += batch.size();
+                } else {
+                    failure = error;
+                }
+                monitor.notifyAll();
+            }
+            slots.release(batch.size());
+            batch.clear();
+            bytes.reset();
+            if (error != null) {
+                System.out.println("Не удалось записать журнал: " + error.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Возвращает номер последней записи, поставленной в очередь текущим потоком, или 0.
+     */
+    public long getLastWriteSeq() {
+        return lastWriteSeq.get()[0];
+    }
+
+    /**
+     * Ждёт, пока запись с указанным номером будет записана и сброшена на диск.
+     *
+     * @param seq номер записи, например {@link #getLastWriteSeq()}
+     * @throws ManagerSaveException если запись не удалась или ожидание прервано
+     */
+    public void awaitDurable(long seq) throws ManagerSaveException {
+        synchronized (monitor) {
+            while (durableSeq < seq) {
+                if (failure != null) {
+                    throw new ManagerSaveException(failure.getMessage());
+                }
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ManagerSaveException("Ожидание записи журнала прервано");
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверяет, сохранена ли запись с указанным номером.
+     */
+    public boolean isDurable(long seq) {
+        synchronized (monitor) {
+            return durableSeq >= seq;
+        }
+    }
+
+    /**
+     * Ждёт сохранения всех записей, поставленных в очередь к этому моменту.
+     *
+     * @throws ManagerSaveException если запись не удалась или ожидание прервано
+     */
+    public void flush() throws ManagerSaveException {
+        long target;
+        synchronized (monitor) {
+            target = appendedSeq;
+        }
+        awaitDurable(target);
+    }
+
+    /**
+     * Возвращает количество записей, поставленных в очередь, но ещё не сохранённых.
+     */
+    public long getLag() {
+        synchronized (monitor) {
+            return appendedSeq - durableSeq;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Дожидается сохранения всей очереди, останавливает поток записи и закрывает файл.
+     */
+    @Override
+    public void close() throws ManagerSaveException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closing = true;
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException(e.getMessage());
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
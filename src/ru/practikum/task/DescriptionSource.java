@@ -0,0 +1,17 @@
+package ru.practikum.task;
+
+/**
+ * Источник описания задачи, которое не хранится в памяти и читается по требованию,
+ * например из файла хранилища (см. {@link Task#setDescriptionSource(DescriptionSource)}).
+ */
+@FunctionalInterface
+public interface DescriptionSource {
+
+    /**
+     * Возвращает текущее описание задачи.
+     *
+     * @param issue задача, описание которой нужно прочитать
+     * @return описание задачи
+     */
+    String loadDescription(Task issue);
+}
@@ -1,24 +1,23 @@
 package ru.practikum.task;
 
-import java.util.ArrayList;
-import java.util.List;
+import ru.practikum.utils.IntArraySet;
 
 public class Epic extends Task {
 
-    private final List<Integer> subtasks;
+    private final IntArraySet subtasks;
 
     public Epic(String summary, String description) {
         super(summary, description);
-        this.subtasks = new ArrayList<>();
+        this.subtasks = new IntArraySet();
     }
 
     public Epic(String taskString) {
         super(taskString);
         String[] parts = taskString.substring(taskString.indexOf("{") + 1, taskString.indexOf("}")).split(", ");
-        this.subtasks = new ArrayList<>();
+        this.subtasks = new IntArraySet();
     }
 
-    public List<Integer> getSubtasks() {
+    public IntArraySet getSubtasks() {
         return subtasks;
     }
 
@@ -28,7 +27,7 @@ public class Epic extends Task {
                 "subtaskIds=" + subtasks.toString() +
                 ", id='" + super.getId() + '\'' +
                 ", summary='" + summary + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", status=" + status +
                 '}';
     }
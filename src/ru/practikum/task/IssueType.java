@@ -0,0 +1,53 @@
+package ru.practikum.task;
+
+/**
+ * Тип задачи. Имя типа совпадает с именем класса задачи и используется
+ * как ключ в {@link ru.practikum.manager.TaskManager}.
+ */
+public enum IssueType {
+
+    TASK("Task"),
+    SUBTASK("Subtask"),
+    EPIC("Epic");
+
+    private final String name;
+
+    IssueType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Определяет тип задачи по её классу без обращения к рефлексии.
+     *
+     * @param issue задача
+     * @return тип задачи
+     */
+    public static IssueType of(Task issue) {
+        if (issue instanceof Subtask) {
+            return SUBTASK;
+        } else if (issue instanceof Epic) {
+            return EPIC;
+        }
+        return TASK;
+    }
+
+    /**
+     * Возвращает тип задачи по имени ("Task", "Subtask", "Epic").
+     *
+     * @param name имя типа
+     * @return тип задачи
+     * @throws IllegalArgumentException если тип с таким именем не существует
+     */
+    public static IssueType fromName(String name) {
+        for (IssueType type : values()) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный тип задачи: " + name);
+    }
+}
@@ -24,7 +24,7 @@ public class Subtask extends Task {
                 "parentEpicId='" + epicId + '\'' +
                 ", id='" + super.getId() + '\'' +
                 ", summary='" + summary + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", status=" + status +
                 '}';
     }
@@ -6,6 +6,8 @@ public class Task {
     protected String description;
     protected Status status;
     private int id;
+    private DescriptionSource descriptionSource;
+    private volatile long version;
 
     public Task(String summary, String description) {
         this.id = 0;
@@ -60,6 +62,18 @@ public class Task {
         this.id = id;
     }
 
+    /**
+     * Возвращает версию задачи, которую менеджер увеличивает при каждом её изменении. Версия не сохраняется
+     * в файл и не участвует в сравнении задач.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public String getSummary() {
         return summary;
     }
@@ -68,12 +82,33 @@ public class Task {
         this.summary = summary;
     }
 
+    /**
+     * Возвращает описание задачи. Если задан источник описания, описание читается из него.
+     */
     public String getDescription() {
+        DescriptionSource source = descriptionSource;
+        if (source != null) {
+            return source.loadDescription(this);
+        }
         return description;
     }
 
+    /**
+     * Задаёт описание задачи и отключает источник описания, если он был задан.
+     */
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionSource = null;
+    }
+
+    /**
+     * Освобождает описание в памяти: дальше оно читается из указанного источника при каждом обращении.
+     *
+     * @param descriptionSource источник описания
+     */
+    public void setDescriptionSource(DescriptionSource descriptionSource) {
+        this.descriptionSource = descriptionSource;
+        this.description = null;
     }
 
     public Status getStatus() {
@@ -89,7 +124,7 @@ public class Task {
         return "Task{" +
                 "id='" + id + '\'' +
                 ", summary='" + summary + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", status=" + status +
                 '}';
     }
@@ -99,6 +134,6 @@ public class Task {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Task task = (Task) o;
-        return id == task.id && summary.equals(task.summary) && description.equals(task.description) && status == task.status;
+        return id == task.id && summary.equals(task.summary) && getDescription().equals(task.getDescription()) && status == task.status;
     }
 }
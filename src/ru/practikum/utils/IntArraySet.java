@@ -0,0 +1,231 @@
+package ru.practikum.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+
+/**
+ * Растущий список примитивов {@code int} без повторов.
+ * <p>
+ * Элементы хранятся в плотном массиве; пока их немного, поиск выполняется перебором,
+ * а при превышении {@link #INDEX_THRESHOLD} строится хеш-индекс «значение → позиция»
+ * с открытой адресацией. Добавление, проверка и удаление элемента выполняются за O(1):
+ * при удалении на место элемента переставляется последний, поэтому порядок
+ * после удалений не сохраняется.
+ * <p>
+ * Реализует {@code List<Integer>} для совместимости с существующим кодом;
+ * на горячем пути следует использовать примитивные методы {@link #addInt(int)},
+ * {@link #removeInt(int)}, {@link #containsInt(int)} и {@link #getInt(int)}.
+ */
+public class IntArraySet extends AbstractList<Integer> implements RandomAccess {
+
+    /**
+     * Размер, начиная с которого строится хеш-индекс позиций.
+     */
+    private static final int INDEX_THRESHOLD = 8;
+
+    private int[] elements;
+    private int size;
+
+    /**
+     * Хеш-индекс: позиция элемента + 1, 0 — пустой слот; {@code null}, пока элементов мало.
+     */
+    private int[] slots;
+
+    public IntArraySet() {
+        this(INDEX_THRESHOLD);
+    }
+
+    public IntArraySet(int capacity) {
+        elements = new int[Math.max(capacity, 1)];
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Добавляет элемент, если его ещё нет.
+     *
+     * @return {@code true}, если элемент был добавлен
+     */
+    public boolean addInt(int value) {
+        if (indexOfInt(value) >= 0) {
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+        modCount++;
+        if (slots != null) {
+            if (size * 2 > slots.length) {
+                buildIndex();
+            } else {
+                insertSlot(value, size);
+            }
+        } else if (size > INDEX_THRESHOLD) {
+            buildIndex();
+        }
+        return true;
+    }
+
+    /**
+     * Удаляет элемент, перемещая на его место последний элемент.
+     *
+     * @return {@code true}, если элемент был найден и удалён
+     */
+    public boolean removeInt(int value) {
+        int index = indexOfInt(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAtIndex(index);
+        return true;
+    }
+
+    public boolean containsInt(int value) {
+        return indexOfInt(value) >= 0;
+    }
+
+    public int getInt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return elements[index];
+    }
+
+    /**
+     * Возвращает позицию элемента или -1, если элемента нет.
+     */
+    public int indexOfInt(int value) {
+        if (slots == null) {
+            for (int i = 0; i < size; i++) {
+                if (elements[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int slot = slotOf(value);
+        return slot < 0 ? -1 : slots[slot] - 1;
+    }
+
+    public void forEachInt(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    public int[] toIntArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    private void removeAtIndex(int index) {
+        int value = elements[index];
+        int last = elements[size - 1];
+        size--;
+        modCount++;
+        if (slots != null) {
+            deleteSlot(slotOf(value));
+            if (index != size) {
+                slots[slotOf(last)] = index + 1;
+            }
+        }
+        elements[index] = last;
+    }
+
+    private int slotOf(int value) {
+        int mask = slots.length - 1;
+        for (int i = hash(value) & mask; ; i = (i + 1) & mask) {
+            int entry = slots[i];
+            if (entry == 0) {
+                return -1;
+            }
+            if (elements[entry - 1] == value) {
+                return i;
+            }
+        }
+    }
+
+    private void insertSlot(int value, int entry) {
+        int mask = slots.length - 1;
+        int i = hash(value) & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = entry;
+    }
+
+    private void deleteSlot(int free) {
+        int mask = slots.length - 1;
+        slots[free] = 0;
+        for (int i = (free + 1) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int home = hash(elements[slots[i] - 1]) & mask;
+            if (((i - home) & mask) >= ((i - free) & mask)) {
+                slots[free] = slots[i];
+                slots[i] = 0;
+                free = i;
+            }
+        }
+    }
+
+    private void buildIndex() {
+        int capacity = Integer.highestOneBit(Math.max(size, INDEX_THRESHOLD)) * 4;
+        slots = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insertSlot(elements[i], i + 1);
+        }
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return addInt(value);
+    }
+
+    @Override
+    public Integer remove(int index) {
+        int value = getInt(index);
+        removeAtIndex(index);
+        return value;
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && removeInt((Integer) value);
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && containsInt((Integer) value);
+    }
+
+    @Override
+    public int indexOf(Object value) {
+        return value instanceof Integer ? indexOfInt((Integer) value) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object value) {
+        return indexOf(value);
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        slots = null;
+        modCount++;
+    }
+}
@@ -0,0 +1,419 @@
+package ru.practikum.utils;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Хеш-таблица с ключами-примитивами {@code int} и открытой адресацией (линейное пробирование).
+ * <p>
+ * Записи хранятся в плотных массивах в порядке добавления, а таблица слотов содержит
+ * только номера записей. Благодаря этому поиск, вставка и удаление выполняются за O(1)
+ * без упаковки ключей, а обход идёт в порядке добавления, как у {@link LinkedHashMap}.
+ * Удалённые записи остаются «дырами» в плотных массивах до следующего перестроения,
+ * которое выполняется только при вставке.
+ * <p>
+ * Методы {@link Map} с ключами {@link Integer} поддерживаются для совместимости,
+ * но на горячем пути следует использовать примитивные {@link #get(int)}, {@link #put(int, Object)}
+ * и {@link #remove(int)}. Значения {@code null} не допускаются.
+ * <p>
+ * Итераторы и сплитераторы слабо согласованы: они не выбрасывают {@link ConcurrentModificationException},
+ * не видят записей, добавленных после начала обхода, и пропускают удалённые во время обхода.
+ *
+ * @param <V> тип значений
+ */
+public class IntObjectHashMap<V> extends AbstractMap<Integer, V> {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * Таблица слотов: номер записи в плотных массивах + 1, 0 — пустой слот.
+     * Длина — степень двойки, вдвое больше ёмкости плотных массивов.
+     */
+    private int[] slots;
+
+    /**
+     * Ключи записей в порядке добавления.
+     */
+    private int[] keys;
+
+    /**
+     * Значения записей в порядке добавления; {@code null} — удалённая запись.
+     */
+    private Object[] values;
+
+    /**
+     * Количество занятых позиций в плотных массивах, включая удалённые записи.
+     */
+    private int used;
+
+    private int size;
+
+    public IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntObjectHashMap(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        slots = new int[capacity * 2];
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Возвращает индекс слота, содержащего ключ, или -1, если ключа нет.
+     */
+    private int slotOf(int key) {
+        int mask = slots.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            int entry = slots[i];
+            if (entry == 0) {
+                return -1;
+            }
+            if (keys[entry - 1] == key) {
+                return i;
+            }
+        }
+    }
+
+    private void insertSlot(int key, int entry) {
+        int mask = slots.length - 1;
+        int i = hash(key) & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = entry;
+    }
+
+    /**
+     * Освобождает слот, сдвигая назад следующие за ним записи той же цепочки,
+     * чтобы поиск не обрывался на образовавшейся пустоте.
+     */
+    private void deleteSlot(int free) {
+        int mask = slots.length - 1;
+        slots[free] = 0;
+        for (int i = (free + 1) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int home = hash(keys[slots[i] - 1]) & mask;
+            if (((i - home) & mask) >= ((i - free) & mask)) {
+                slots[free] = slots[i];
+                slots[i] = 0;
+                free = i;
+            }
+        }
+    }
+
+    /**
+     * Перестраивает таблицу в новые массивы, отбрасывая удалённые записи.
+     * Старые массивы не изменяются, поэтому уже начатые обходы остаются корректными.
+     */
+    private void rebuild(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldUsed = used;
+        allocate(capacity);
+        used = 0;
+        for (int i = 0; i < oldUsed; i++) {
+            if (oldValues[i] != null) {
+                keys[used] = oldKeys[i];
+                values[used] = oldValues[i];
+                used++;
+                insertSlot(oldKeys[i], used);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : (V) values[slots[slot] - 1];
+    }
+
+    public boolean containsKey(int key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * Добавляет или заменяет значение по ключу.
+     *
+     * @return предыдущее значение или {@code null}, если ключа не было
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Objects.requireNonNull(value, "Значение не может быть null");
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            int entry = slots[slot] - 1;
+            V old = (V) values[entry];
+            values[entry] = value;
+            return old;
+        }
+        if (used == keys.length) {
+            rebuild(size >= keys.length / 2 ? keys.length * 2 : keys.length);
+        }
+        keys[used] = key;
+        values[used] = value;
+        used++;
+        insertSlot(key, used);
+        size++;
+        return null;
+    }
+
+    /**
+     * Удаляет значение по ключу.
+     *
+     * @return удалённое значение или {@code null}, если ключа не было
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = slots[slot] - 1;
+        V old = (V) values[entry];
+        values[entry] = null;
+        size--;
+        deleteSlot(slot);
+        return old;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && containsKey(((Integer) key).intValue());
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        allocate(keys.length);
+        used = 0;
+        size = 0;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new EntryIterator<>() {
+                    @Override
+                    V map(int key, V value) {
+                        return value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Возвращает значения с позиции {@code offset} в порядке добавления, не более {@code limit} штук.
+     * Если удалённых записей нет, начало страницы находится за O(1), иначе — обходом с начала.
+     *
+     * @param offset количество пропускаемых значений
+     * @param limit  максимальное количество возвращаемых значений
+     * @return список значений страницы
+     * @throws IllegalArgumentException если {@code offset} или {@code limit} отрицательны
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Смещение и размер страницы не могут быть отрицательными");
+        }
+        List<V> page = new ArrayList<>(Math.min(limit, Math.max(size - offset, 0)));
+        int i = 0;
+        if (used == size) {
+            i = Math.min(offset, used);
+        } else {
+            for (int skipped = 0; i < used && skipped < offset; i++) {
+                if (values[i] != null) {
+                    skipped++;
+                }
+            }
+        }
+        for (; i < used && page.size() < limit; i++) {
+            if (values[i] != null) {
+                page.add((V) values[i]);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Возвращает разделяемый сплитератор значений в порядке добавления без копирования данных.
+     * Пригоден для параллельных потоков: делится пополам по диапазону плотного массива.
+     */
+    public Spliterator<V> valuesSpliterator() {
+        return new ValueSpliterator<>(values, 0, used);
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new EntryIterator<>() {
+                    @Override
+                    Entry<Integer, V> map(int key, V value) {
+                        return new SimpleImmutableEntry<>(key, value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Итератор по плотным массивам в порядке добавления. Не выбрасывает
+     * {@link ConcurrentModificationException}: записи, добавленные после начала обхода, не видны,
+     * удалённые во время обхода пропускаются.
+     */
+    private abstract class EntryIterator<E> implements Iterator<E> {
+
+        private final int[] iterKeys = keys;
+        private final Object[] iterValues = values;
+        private final int bound = used;
+        private int next = advance(0);
+        private int last = -1;
+
+        private int advance(int from) {
+            while (from < bound && iterValues[from] == null) {
+                from++;
+            }
+            return from;
+        }
+
+        abstract E map(int key, V value);
+
+        @Override
+        public boolean hasNext() {
+            return next < bound;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (next >= bound) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance(next + 1);
+            return map(iterKeys[last], (V) iterValues[last]);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            IntObjectHashMap.this.remove(iterKeys[last]);
+            last = -1;
+        }
+    }
+
+    /**
+     * Сплитератор по диапазону плотного массива значений, захваченного при создании.
+     */
+    private static final class ValueSpliterator<V> implements Spliterator<V> {
+
+        private static final int MIN_SPLIT_SIZE = 1024;
+
+        private final Object[] values;
+        private int index;
+        private final int fence;
+
+        private ValueSpliterator(Object[] values, int origin, int fence) {
+            this.values = values;
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super V> action) {
+            while (index < fence) {
+                Object value = values[index++];
+                if (value != null) {
+                    action.accept((V) value);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super V> action) {
+            for (; index < fence; index++) {
+                Object value = values[index];
+                if (value != null) {
+                    action.accept((V) value);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<V> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid - index < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            Spliterator<V> prefix = new ValueSpliterator<>(values, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+}
@@ -12,6 +12,14 @@ public class Managers {
         return new InMemoryHistoryManager();
     }
 
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    public static TaskManager getConcurrentTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
     public static TaskManager getFileBackedTaskManager() {
         return new FileBackedTaskManager("tasksList.txt");
     }
@@ -3,6 +3,7 @@ package test;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import ru.practikum.manager.InMemoryTaskManager;
 import ru.practikum.manager.TaskManager;
 import ru.practikum.task.Epic;
 import ru.practikum.task.Status;
@@ -10,7 +11,10 @@ import ru.practikum.task.Subtask;
 import ru.practikum.task.Task;
 import ru.practikum.utils.Managers;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -124,6 +128,119 @@ public class BasicTests {
         });
     }
 
+    @Test
+    public void epicStatusCountersMatchFullRecalculation() {
+        InMemoryTaskManager<Task> manager = new InMemoryTaskManager<>();
+        manager.setEpicStatusVerification(true);
+        int e1Id = manager.addIssue(new Epic("epic1", "epic1_desc"));
+        int e2Id = manager.addIssue(new Epic("epic2", "epic2_desc"));
+        List<Integer> subtaskIds = new ArrayList<>();
+        Random random = new Random(1);
+        Status[] statuses = Status.values();
+        for (int i = 0; i < 2_000; i++) {
+            int action = random.nextInt(4);
+            if (action == 0 || subtaskIds.isEmpty()) {
+                int epicId = random.nextBoolean() ? e1Id : e2Id;
+                subtaskIds.add(manager.addIssue(new Subtask("subtask" + i, "desc", epicId)));
+            } else if (action == 1) {
+                int subtaskId = subtaskIds.remove(random.nextInt(subtaskIds.size()));
+                manager.removeIssueById(subtaskId, "Subtask");
+            } else {
+                int subtaskId = subtaskIds.get(random.nextInt(subtaskIds.size()));
+                Status status = statuses[random.nextInt(statuses.length)];
+                manager.updateIssue(subtaskId, new Subtask("subtask_upd", "desc_upd", status));
+            }
+        }
+        manager.clearIssuesList("Subtask");
+        assertEquals(Status.NEW, manager.getIssueById(e1Id, "Epic").getStatus());
+        assertEquals(Status.NEW, manager.getIssueById(e2Id, "Epic").getStatus());
+    }
+
+    @Test
+    public void statusAndEpicIndexesFollowMutations() {
+        int t1Id = taskManager.addIssue(new Task("task1", "task1_desc"));
+        int t2Id = taskManager.addIssue(new Task("task2", "task2_desc"));
+        int e1Id = taskManager.addIssue(new Epic("epic1", "epic1_desc"));
+        int e2Id = taskManager.addIssue(new Epic("epic2", "epic2_desc"));
+        int s1Id = taskManager.addIssue(new Subtask("subtask1", "subtask1_desc", e1Id));
+        int s2Id = taskManager.addIssue(new Subtask("subtask2", "subtask2_desc", e1Id));
+        int s3Id = taskManager.addIssue(new Subtask("subtask3", "subtask3_desc", e2Id));
+        taskManager.updateIssue(t1Id, new Task("task1_upd", "task1_desc_upd", Status.IN_PROGRESS));
+        taskManager.updateIssue(s1Id, new Subtask("subtask1_upd", "subtask1_desc_upd", Status.IN_PROGRESS));
+        taskManager.updateIssue(s3Id, new Subtask("subtask3_upd", "subtask3_desc_upd", Status.DONE));
+
+        assertEquals(List.of(t1Id), ids(taskManager.getIssuesByStatus("Task", Status.IN_PROGRESS, Task.class)));
+        assertEquals(List.of(t2Id), ids(taskManager.getIssuesByStatus("Task", Status.NEW, Task.class)));
+        assertEquals(List.of(e1Id), ids(taskManager.getIssuesByStatus("Epic", Status.IN_PROGRESS, Epic.class)));
+        assertEquals(List.of(e2Id), ids(taskManager.getIssuesByStatus("Epic", Status.DONE, Epic.class)));
+        assertEquals(List.of(s1Id), ids(taskManager.getEpicSubtasks(e1Id, Status.IN_PROGRESS)));
+        assertEquals(List.of(s2Id), ids(taskManager.getEpicSubtasks(e1Id, Status.NEW)));
+        assertEquals(2, taskManager.getEpicSubtasks(e1Id, null).size());
+
+        taskManager.removeIssueById(s1Id, "Subtask");
+        assertTrue(taskManager.getEpicSubtasks(e1Id, Status.IN_PROGRESS).isEmpty());
+        assertEquals(List.of(e1Id), ids(taskManager.getIssuesByStatus("Epic", Status.NEW, Epic.class)));
+        taskManager.removeIssueById(e2Id, "Epic");
+        assertTrue(taskManager.getIssuesByStatus("Subtask", Status.DONE, Subtask.class).isEmpty());
+        taskManager.clearIssuesList("Task");
+        assertTrue(taskManager.getIssuesByStatus("Task", Status.IN_PROGRESS, Task.class).isEmpty());
+    }
+
+    @Test
+    public void searchByWordsAndPrefixes() {
+        int t1Id = taskManager.addIssue(new Task("Квартальный отчёт", "Собрать цифры продаж"));
+        int t2Id = taskManager.addIssue(new Task("Годовой отчёт", "Проверить цифры"));
+        int e1Id = taskManager.addIssue(new Epic("Релиз", "Подготовить отчётность"));
+        int s1Id = taskManager.addIssue(new Subtask("Отчёт по релизу", "Цифры релиза", e1Id));
+
+        assertEquals(List.of(t1Id, t2Id, s1Id), ids(taskManager.search("ОТЧЁТ")));
+        assertEquals(List.of(t1Id), ids(taskManager.search("отчёт продаж")));
+        assertEquals(List.of(t1Id, t2Id, s1Id, e1Id), ids(taskManager.search("отчёт*")));
+        assertEquals(List.of(s1Id, e1Id), ids(taskManager.search("рел* отч*")));
+        assertTrue(taskManager.search("отчёт несуществующее").isEmpty());
+        assertTrue(taskManager.search("  ").isEmpty());
+
+        taskManager.updateIssue(t2Id, new Task("Годовой план", "Проверить цифры", Status.NEW));
+        assertEquals(List.of(t1Id, s1Id), ids(taskManager.search("отчёт")));
+        taskManager.removeIssueById(s1Id, "Subtask");
+        assertEquals(List.of(t1Id), ids(taskManager.search("отчёт")));
+        taskManager.clearIssuesList("Epic");
+        assertTrue(taskManager.search("релиз").isEmpty());
+    }
+
+    @Test
+    public void pagedAndStreamedIssuesFollowInsertionOrder() {
+        List<Integer> taskIds = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            taskIds.add(taskManager.addIssue(new Task("task" + i, "desc")));
+        }
+        assertEquals(taskIds.subList(10, 20), ids(taskManager.getIssuesList("Task", Task.class, 10, 10)));
+        taskManager.removeIssueById(taskIds.get(0), "Task");
+        assertEquals(taskIds.subList(11, 21), ids(taskManager.getIssuesList("Task", Task.class, 10, 10)));
+        assertTrue(taskManager.getIssuesList("Task", Task.class, 10_000, 10).isEmpty());
+
+        assertEquals(taskIds.subList(1, taskIds.size()),
+                taskManager.streamIssues("Task", Task.class).map(Task::getId).collect(Collectors.toList()));
+        assertEquals(taskIds.size() - 1, taskManager.streamIssues("Task", Task.class).parallel().count());
+
+        List<Integer> seen = new ArrayList<>();
+        taskManager.streamIssues("Task", Task.class).forEach(task -> {
+            if (seen.isEmpty()) {
+                taskManager.removeIssueById(taskIds.get(2), "Task");
+                taskManager.addIssue(new Task("late", "desc"));
+            }
+            seen.add(task.getId());
+        });
+        assertTrue(!seen.contains(taskIds.get(2)));
+        assertEquals(taskIds.size() - 2, seen.size());
+    }
+
+    private <T extends Task> List<Integer> ids(List<T> issues) {
+        List<Integer> ids = new ArrayList<>();
+        issues.forEach(issue -> ids.add(issue.getId()));
+        return ids;
+    }
+
     private <T extends Task> void checkRemoverIssueExists(List<T> issues, int removeId) {
         for (T issue : issues) {
             assertTrue(issue.getId() != removeId);
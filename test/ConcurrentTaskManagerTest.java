@@ -0,0 +1,159 @@
+package test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practikum.manager.ConcurrentTaskManager;
+import ru.practikum.task.Epic;
+import ru.practikum.task.Status;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тестирование ConcurrentTaskManager")
+public class ConcurrentTaskManagerTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 5_000;
+
+    @Test
+    public void concurrentMutationsKeepIdsAndEpicsConsistent() throws Exception {
+        ConcurrentTaskManager taskManager = new ConcurrentTaskManager();
+        taskManager.setEpicStatusVerification(true);
+        List<Integer> epicIds = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            epicIds.add(taskManager.addIssue(new Epic("epic" + i, "epic_desc")));
+        }
+        Set<Integer> taskIds = ConcurrentHashMap.newKeySet();
+        Set<Integer> subtaskIds = ConcurrentHashMap.newKeySet();
+        List<Integer> duplicates = new CopyOnWriteArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                List<Integer> ownSubtasks = new ArrayList<>();
+                start.await();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    switch (random.nextInt(6)) {
+                        case 0 -> {
+                            int id = taskManager.addIssue(new Task("task" + i, "task_desc"));
+                            if (!taskIds.add(id)) {
+                                duplicates.add(id);
+                            }
+                        }
+                        case 1, 2 -> {
+                            int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                            int id = taskManager.addIssue(new Subtask("subtask" + i, "subtask_desc", epicId));
+                            if (!subtaskIds.add(id)) {
+                                duplicates.add(id);
+                            }
+                            ownSubtasks.add(id);
+                        }
+                        case 3 -> {
+                            if (!ownSubtasks.isEmpty()) {
+                                int id = ownSubtasks.get(random.nextInt(ownSubtasks.size()));
+                                Status status = Status.values()[random.nextInt(Status.values().length)];
+                                taskManager.updateIssue(id, new Subtask("subtask_upd", "subtask_desc_upd", status));
+                            }
+                        }
+                        case 4 -> {
+                            if (!ownSubtasks.isEmpty()) {
+                                int id = ownSubtasks.remove(random.nextInt(ownSubtasks.size()));
+                                taskManager.removeIssueById(id, "Subtask");
+                                subtaskIds.remove(id);
+                            }
+                        }
+                        default -> {
+                            int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                            Epic epic = taskManager.getIssueById(epicId, "Epic");
+                            assertNotNull(epic);
+                            taskManager.getEpicSubtasks(epicId, Status.DONE);
+                            taskManager.search("task*");
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(duplicates.isEmpty(), "Выданы повторяющиеся идентификаторы: " + duplicates);
+        assertEquals(taskIds.size(), taskManager.getIssuesList("Task", Task.class).size());
+        assertEquals(subtaskIds.size(), taskManager.getIssuesList("Subtask", Subtask.class).size());
+        int linkedSubtasks = 0;
+        for (int epicId : epicIds) {
+            for (Subtask subtask : taskManager.getEpicSubtasks(epicId, null)) {
+                assertEquals(epicId, subtask.getEpicId());
+                linkedSubtasks++;
+            }
+        }
+        assertEquals(subtaskIds.size(), linkedSubtasks);
+    }
+
+    @Test
+    public void concurrentBatchesOfDifferentTypesKeepEpicStatus() throws Exception {
+        ConcurrentTaskManager taskManager = new ConcurrentTaskManager();
+        taskManager.setEpicStatusVerification(true);
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            epicIds.add(taskManager.addIssue(new Epic("epic" + i, "epic_desc")));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean subtasksDone = new AtomicBoolean();
+        //пакеты подзадач берут блокировки эпиков и подзадач, пакеты задач — только блокировку задач
+        Future<?> subtaskBatches = executor.submit(() -> {
+            start.await();
+            try {
+                for (int round = 0; round < 100; round++) {
+                    List<Subtask> subtasks = new ArrayList<>();
+                    for (int i = 0; i < 200; i++) {
+                        subtasks.add(new Subtask("subtask" + i, "subtask_desc", epicIds.get(i % epicIds.size())));
+                    }
+                    List<Integer> ids = taskManager.addIssues(subtasks);
+                    Map<Integer, Subtask> done = new LinkedHashMap<>();
+                    ids.forEach(id -> done.put(id, new Subtask("subtask", "subtask_desc", Status.DONE)));
+                    taskManager.updateIssues(done);
+                    for (int epicId : epicIds) {
+                        assertEquals(Status.DONE, taskManager.getIssueById(epicId, "Epic").getStatus());
+                    }
+                    taskManager.removeIssues("Subtask", ids);
+                }
+            } finally {
+                subtasksDone.set(true);
+            }
+            return null;
+        });
+        Future<?> taskBatches = executor.submit(() -> {
+            start.await();
+            while (!subtasksDone.get()) {
+                List<Integer> ids = taskManager.addIssues(List.of(new Task("task", "task_desc")));
+                taskManager.updateIssues(Map.of(ids.get(0), new Task("task", "task_desc", Status.DONE)));
+                taskManager.removeIssues("Task", ids);
+            }
+            return null;
+        });
+        start.countDown();
+        subtaskBatches.get(60, TimeUnit.SECONDS);
+        taskBatches.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertTrue(taskManager.getIssuesList("Task", Task.class).isEmpty());
+        assertTrue(taskManager.getIssuesList("Subtask", Subtask.class).isEmpty());
+        for (int epicId : epicIds) {
+            assertEquals(Status.NEW, taskManager.getIssueById(epicId, "Epic").getStatus());
+        }
+    }
+}
@@ -5,18 +5,53 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import ru.practikum.exceptions.ManagerSaveException;
 import ru.practikum.manager.FileBackedTaskManager;
+import ru.practikum.manager.InMemoryHistoryManager;
+import ru.practikum.manager.InMemoryTaskManager;
+import ru.practikum.manager.PersistentHistoryManager;
+import ru.practikum.storage.BinarySnapshotFormat;
+import ru.practikum.storage.CheckpointStorage;
+import ru.practikum.storage.CompactionTrigger;
+import ru.practikum.storage.CompressedSnapshotFormat;
+import ru.practikum.storage.FsyncPolicy;
+import ru.practikum.storage.GroupCommitStorage;
+import ru.practikum.storage.OverflowPolicy;
+import ru.practikum.storage.PagedStorage;
+import ru.practikum.storage.ParallelTextSnapshotFormat;
+import ru.practikum.storage.SnapshotFormat;
+import ru.practikum.storage.SnapshotStorage;
+import ru.practikum.storage.TextSnapshotFormat;
+import ru.practikum.storage.WriteBehindStorage;
+import ru.practikum.storage.JournalStorage;
+import ru.practikum.storage.JsonSnapshotFormat;
 import ru.practikum.task.Epic;
+import ru.practikum.task.IssueType;
 import ru.practikum.task.Status;
 import ru.practikum.task.Subtask;
 import ru.practikum.task.Task;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Тестирование FileBackedTaskManager")
@@ -162,6 +197,618 @@ public class FileBackedTaskManagerTest{
         }
     }
 
+    @Test
+    public void journalAppendsOneRecordPerMutationAndReplaysOnStartup() throws Exception {
+        Path journal = Files.createTempFile("tasks", ".journal");
+        Files.delete(journal);
+        int t1Id;
+        int e1Id;
+        int s2Id;
+        try (FileBackedTaskManager journalManager = new FileBackedTaskManager(new JournalStorage(journal.toString()))) {
+            t1Id = journalManager.addIssue(new Task("task1", "task1_desc"));
+            int t2Id = journalManager.addIssue(new Task("task2", "task2_desc"));
+            e1Id = journalManager.addIssue(new Epic("epic1", "epic1_desc"));
+            int s1Id = journalManager.addIssue(new Subtask("subtask1", "subtask1_desc", e1Id));
+            s2Id = journalManager.addIssue(new Subtask("subtask2", "subtask2_desc", e1Id));
+            journalManager.updateIssue(t1Id, new Task("task1_upd", "task1_desc_upd", Status.IN_PROGRESS));
+            journalManager.updateIssue(s2Id, new Subtask("subtask2_upd", "subtask2_desc_upd", Status.DONE));
+            journalManager.removeIssueById(t2Id, "Task");
+            journalManager.removeIssueById(s1Id, "Subtask");
+        }
+        assertEquals(9, Files.readAllLines(journal).size());
+        Files.writeString(journal, "A Task{id='9', summ", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(new JournalStorage(journal.toString()))) {
+            assertEquals(1, restored.getIssuesList("Task", Task.class).size());
+            Task task = restored.getIssueById(t1Id, "Task");
+            assertEquals("task1_upd", task.getSummary());
+            assertEquals(Status.IN_PROGRESS, task.getStatus());
+            assertEquals(Status.DONE, restored.getIssueById(e1Id, "Epic").getStatus());
+            assertEquals(List.of(s2Id), Epic.class.cast(restored.getIssueById(e1Id, "Epic")).getSubtasks());
+            int t3Id = restored.addIssue(new Task("task3", "task3_desc"));
+            assertEquals(3, t3Id);
+        }
+        assertEquals(10, Files.readAllLines(journal).size());
+        Files.delete(journal);
+    }
+
+    @Test
+    public void checkpointStorageCompactsChangelogInBackgroundAndReplaysOnlyTail() throws Exception {
+        Path dir = Files.createTempDirectory("checkpoint");
+        String checkpoint = dir.resolve("tasks.txt").toString();
+        CheckpointStorage storage = new CheckpointStorage(checkpoint, new CompactionTrigger(10, 1.0, 1 << 20));
+        int e1Id;
+        int tailId;
+        try (FileBackedTaskManager checkpointManager = new FileBackedTaskManager(storage)) {
+            e1Id = checkpointManager.addIssue(new Epic("epic1", "epic1_desc"));
+            for (int i = 0; i < 25; i++) {
+                int taskId = checkpointManager.addIssue(new Task("task" + i, "task_desc" + i));
+                if (i % 2 == 0) {
+                    checkpointManager.removeIssueById(taskId, "Task");
+                }
+            }
+            int s1Id = checkpointManager.addIssue(new Subtask("subtask1", "subtask1_desc", e1Id));
+            checkpointManager.updateIssue(s1Id, new Subtask("subtask1", "subtask1_desc", Status.DONE));
+            storage.compact();
+            tailId = checkpointManager.addIssue(new Task("tail", "tail_desc"));
+        }
+        assertTrue(storage.getCompactionCount() >= 2);
+        assertTrue(storage.getLastCompactionMillis() >= 0);
+        assertTrue(Files.readAllLines(Path.of(checkpoint)).get(0).startsWith("#checkpoint "));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+
+        CheckpointStorage reopened = new CheckpointStorage(checkpoint);
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(reopened)) {
+            assertEquals(1, reopened.getChangelogRecords());
+            //контрольная точка загружается без записи в историю, в неё попадает только задача из журнала
+            assertEquals(List.of(tailId + "_task"), new ArrayList<>(restored.getHistory().keySet()));
+            assertEquals(13, restored.getIssuesList("Task", Task.class).size());
+            assertEquals(Status.DONE, restored.getIssueById(e1Id, "Epic").getStatus());
+            assertEquals("tail", restored.search("tail").get(0).getSummary());
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void groupCommitPersistsConcurrentMutationsUnderEveryPolicy() throws Exception {
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            Path journal = Files.createTempFile("tasks", ".journal");
+            Files.delete(journal);
+            GroupCommitStorage storage = new GroupCommitStorage(journal.toString(), policy, 5);
+            try (FileBackedTaskManager groupManager = new FileBackedTaskManager(storage)) {
+                ExecutorService executor = Executors.newFixedThreadPool(8);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < 8; thread++) {
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 200; i++) {
+                            groupManager.addIssue(new Task("task" + i, "task_desc" + i));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                executor.shutdown();
+            }
+            assertEquals(1600, storage.getRecordCount());
+            assertTrue(storage.getBatchCount() <= storage.getRecordCount());
+            assertEquals(1600, Files.readAllLines(journal).size());
+            try (FileBackedTaskManager restored = new FileBackedTaskManager(new GroupCommitStorage(journal.toString()))) {
+                assertEquals(1600, restored.getIssuesList("Task", Task.class).size());
+            }
+            Files.delete(journal);
+        }
+    }
+
+    @Test
+    public void writeBehindDrainsQueueOnCloseAndAppliesBackpressure() throws Exception {
+        Path journal = Files.createTempFile("tasks", ".journal");
+        Files.delete(journal);
+        WriteBehindStorage storage = new WriteBehindStorage(journal.toString(), 4, OverflowPolicy.BLOCK);
+        try (FileBackedTaskManager writeBehindManager = new FileBackedTaskManager(storage)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        writeBehindManager.addIssue(new Task("task" + i, "task_desc" + i));
+                        assertTrue(storage.getLag() <= 4);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            writeBehindManager.addIssue(new Task("last", "last_desc"));
+            long seq = storage.getLastWriteSeq();
+            assertEquals(2001, seq);
+            storage.awaitDurable(seq);
+            assertTrue(storage.isDurable(seq));
+        }
+        assertEquals(0, storage.getLag());
+        assertEquals(2001, Files.readAllLines(journal).size());
+
+        WriteBehindStorage rejecting = new WriteBehindStorage(journal.toString(), 2, OverflowPolicy.REJECT);
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(rejecting)) {
+            assertEquals(2001, restored.getIssuesList("Task", Task.class).size());
+            rejecting.reserve();
+            rejecting.reserve();
+            assertThrows(IllegalStateException.class, () -> restored.addIssue(new Task("rejected", "rejected_desc")));
+            assertEquals(2001, restored.getIssuesList("Task", Task.class).size());
+            rejecting.release();
+            rejecting.release();
+            restored.addIssue(new Task("accepted", "accepted_desc"));
+            rejecting.flush();
+            //пустые пакеты и транзакция без изменений не занимают место в очереди
+            restored.addIssues(List.of());
+            restored.updateIssues(Map.of());
+            restored.removeIssues("Task", List.of());
+            restored.transaction(tx -> tx.addIssues(List.of()));
+            restored.addIssue(new Task("after_empty1", "after_empty_desc"));
+            rejecting.flush();
+            restored.addIssue(new Task("after_empty2", "after_empty_desc"));
+            rejecting.flush();
+            assertEquals(2004, Files.readAllLines(journal).size());
+        }
+        Files.delete(journal);
+    }
+
+    @Test
+    public void binarySnapshotRoundTripsAndConvertsToText() throws Exception {
+        Path binary = Files.createTempFile("tasks", ".bin");
+        Path text = Files.createTempFile("tasks", ".txt");
+        Files.delete(binary);
+        int t1Id;
+        int e1Id;
+        int s1Id;
+        try (FileBackedTaskManager binaryManager = new FileBackedTaskManager(
+                new SnapshotStorage(binary.toString(), new BinarySnapshotFormat()))) {
+            t1Id = binaryManager.addIssue(new Task("Задача, с запятой", "описание=с равенством", Status.IN_PROGRESS));
+            e1Id = binaryManager.addIssue(new Epic("epic1", "epic1_desc"));
+            s1Id = binaryManager.addIssue(new Subtask("subtask1", "subtask1_desc", e1Id));
+            binaryManager.addIssue(new Subtask("subtask2", "subtask2_desc", e1Id));
+            binaryManager.updateIssue(s1Id, new Subtask("subtask1", "subtask1_desc", Status.DONE));
+        }
+
+        BinarySnapshotFormat.MappedSnapshot snapshot = BinarySnapshotFormat.MappedSnapshot.open(binary);
+        assertEquals(4, snapshot.size());
+        int record = snapshot.find(IssueType.SUBTASK, s1Id);
+        assertEquals(Status.DONE, snapshot.getStatus(record));
+        assertEquals(e1Id, snapshot.getEpicId(record));
+        assertEquals("Задача, с запятой", snapshot.getSummary(snapshot.find(IssueType.TASK, t1Id)));
+        assertEquals(-1, snapshot.find(IssueType.TASK, 100));
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(
+                new SnapshotStorage(binary.toString(), new BinarySnapshotFormat()))) {
+            assertTrue(restored.getHistory().isEmpty());
+            assertEquals(Status.IN_PROGRESS, restored.getTasksList().get("Epic").get(e1Id).getStatus());
+            assertEquals("описание=с равенством", restored.getIssueById(t1Id, "Task").getDescription());
+            assertEquals(Status.IN_PROGRESS, restored.getIssueById(e1Id, "Epic").getStatus());
+            assertEquals(2, restored.getEpicSubtasks(e1Id, null).size());
+        }
+
+        SnapshotFormat.convert(binary, new BinarySnapshotFormat(), text, new TextSnapshotFormat());
+        assertEquals(4, Files.readAllLines(text).size());
+        Files.delete(binary);
+        SnapshotFormat.convert(text, new TextSnapshotFormat(), binary, new BinarySnapshotFormat());
+        assertEquals(Status.DONE, BinarySnapshotFormat.MappedSnapshot.open(binary).getStatus(record));
+        Files.delete(text);
+        Files.delete(binary);
+    }
+
+    @Test
+    public void parallelLoadMatchesSequentialLoadWithoutHistory() throws Exception {
+        InMemoryTaskManager<Task> source = new InMemoryTaskManager<>();
+        for (int e = 0; e < 3_000; e++) {
+            int epicId = source.addIssue(new Epic("epic" + e, "epic, desc=" + e));
+            for (int s = 0; s < 3; s++) {
+                source.addIssue(new Subtask("subtask" + s, "subtask_desc", epicId));
+            }
+        }
+        for (int t = 0; t < 20_000; t++) {
+            source.addIssue(new Task("task" + t, "task_desc" + t, Status.values()[t % 3]));
+        }
+        source.updateIssue(2, new Subtask("subtask", "subtask_desc", Status.DONE));
+        Path file = Files.createTempFile("tasks", ".txt");
+        new TextSnapshotFormat().write(file, source.getTasksList());
+        assertTrue(Files.size(file) > 2 * ParallelTextSnapshotFormat.MIN_CHUNK_BYTES);
+
+        InMemoryTaskManager<Task> sequential = new InMemoryTaskManager<>();
+        new TextSnapshotFormat().read(file, sequential);
+        InMemoryTaskManager<Task> parallel = new InMemoryTaskManager<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        new ParallelTextSnapshotFormat(pool).read(file, parallel);
+        pool.shutdown();
+
+        assertTrue(parallel.getHistory().isEmpty());
+        for (String issueType : List.of("Task", "Subtask", "Epic")) {
+            assertEquals(new ArrayList<>(sequential.getTasksList().get(issueType).values()),
+                    new ArrayList<>(parallel.getTasksList().get(issueType).values()));
+        }
+        assertEquals(Status.IN_PROGRESS, parallel.getIssueById(1, "Epic").getStatus());
+        assertEquals(List.of(1, 2, 3), Epic.class.cast(parallel.getIssueById(1, "Epic")).getSubtasks());
+        assertEquals(20_001, parallel.addIssue(new Task("next", "next_desc")));
+        Files.delete(file);
+    }
+
+    @Test
+    public void loadIssuesRejectsInvalidBatchWithoutChanges() {
+        InMemoryTaskManager<Task> manager = new InMemoryTaskManager<>();
+        Subtask orphan = new Subtask("orphan", "orphan_desc", 5);
+        orphan.setId(1);
+        Task task = new Task("task", "task_desc");
+        task.setId(1);
+        assertThrows(IllegalArgumentException.class, () -> manager.loadIssues(List.of(task, orphan)));
+        assertTrue(manager.getIssuesList("Task", Task.class).isEmpty());
+        Task duplicate = new Task("duplicate", "duplicate_desc");
+        duplicate.setId(1);
+        assertThrows(IllegalArgumentException.class, () -> manager.loadIssues(List.of(task, duplicate)));
+        assertTrue(manager.getIssuesList("Task", Task.class).isEmpty());
+    }
+
+    @Test
+    public void jsonFormatStreamsBoardThroughFileBackedTaskManager() throws Exception {
+        Path json = Files.createTempFile("tasks", ".json");
+        Files.delete(json);
+        int e1Id;
+        try (FileBackedTaskManager jsonManager = new FileBackedTaskManager(
+                new SnapshotStorage(json.toString(), new JsonSnapshotFormat()))) {
+            e1Id = jsonManager.addIssue(new Epic("epic \"1\"", "строка\nс переводом"));
+            for (int i = 0; i < JsonSnapshotFormat.LOAD_BATCH_SIZE + 10; i++) {
+                jsonManager.addIssue(new Subtask("subtask" + i, "a, b='c'", e1Id));
+            }
+            jsonManager.updateIssue(1, new Subtask("subtask0", "done", Status.DONE));
+            jsonManager.addIssue(new Task("task1", "task1_desc", Status.IN_PROGRESS));
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(
+                new SnapshotStorage(json.toString(), new JsonSnapshotFormat()))) {
+            Epic epic = restored.getIssueById(e1Id, "Epic");
+            assertEquals("epic \"1\"", epic.getSummary());
+            assertEquals("строка\nс переводом", epic.getDescription());
+            assertEquals(Status.IN_PROGRESS, epic.getStatus());
+            assertEquals(JsonSnapshotFormat.LOAD_BATCH_SIZE + 10, epic.getSubtasks().size());
+            assertEquals("a, b='c'", restored.getIssueById(2, "Subtask").getDescription());
+            assertEquals(Status.IN_PROGRESS, restored.getIssueById(1, "Task").getStatus());
+        }
+
+        String document = "{\"version\":1,\"owner\":{\"name\":\"x\"},"
+                + "\"tasks\":[{\"id\":3,\"summary\":\"t\",\"extra\":[1,2],\"status\":\"DONE\"}]}";
+        List<Task> issues = new ArrayList<>();
+        new JsonSnapshotFormat().read(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), issues::add);
+        assertEquals(1, issues.size());
+        assertEquals(3, issues.get(0).getId());
+        assertEquals(Status.DONE, issues.get(0).getStatus());
+        Files.delete(json);
+    }
+
+    @Test
+    public void compressedFormatSeeksToSingleBlock() throws Exception {
+        InMemoryTaskManager<Task> source = new InMemoryTaskManager<>();
+        for (int e = 0; e < 500; e++) {
+            int epicId = source.addIssue(new Epic("epic" + e, "epic_desc"));
+            source.addIssue(new Subtask("subtask" + e, "subtask, desc", epicId));
+        }
+        for (int t = 0; t < 2_000; t++) {
+            source.addIssue(new Task("task" + t, "task_desc" + t, Status.values()[t % 3]));
+        }
+        Path file = Files.createTempFile("tasks", ".kbz");
+        new CompressedSnapshotFormat(9, 16 * 1024).write(file, source.getTasksList());
+
+        CompressedSnapshotFormat.BlockIndex index = CompressedSnapshotFormat.readIndex(file);
+        assertTrue(index.getBlocks().size() > 4);
+        assertEquals(3_000, index.getRecordCount());
+        assertTrue(index.getCompressionRatio() > 3);
+        int block = index.blockOfRecord(2_999);
+        assertEquals(index.getBlocks().size() - 1, block);
+        List<Task> lastBlock = CompressedSnapshotFormat.readBlock(file, block);
+        assertEquals("task1999", lastBlock.get(lastBlock.size() - 1).getSummary());
+        assertEquals(-1, index.blockOfRecord(3_000));
+
+        InMemoryTaskManager<Task> restored = new InMemoryTaskManager<>();
+        new CompressedSnapshotFormat().read(file, restored);
+        for (String issueType : List.of("Task", "Subtask", "Epic")) {
+            assertEquals(new ArrayList<>(source.getTasksList().get(issueType).values()),
+                    new ArrayList<>(restored.getTasksList().get(issueType).values()));
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    public void pagedStorageWritesOnlyChangedPages() throws Exception {
+        Path file = Files.createTempFile("tasks", ".kpg");
+        PagedStorage storage = new PagedStorage(file.toString());
+        int epicId;
+        try (FileBackedTaskManager pagedManager = new FileBackedTaskManager(storage)) {
+            epicId = pagedManager.addIssue(new Epic("epic", "epic_desc"));
+            pagedManager.addIssue(new Subtask("subtask1", "subtask1_desc", epicId));
+            pagedManager.addIssue(new Subtask("subtask2", "subtask2_desc", epicId));
+            for (int t = 0; t < 2_000; t++) {
+                pagedManager.addIssue(new Task("task" + t, "task_desc" + t));
+            }
+            int pageCount = storage.getPageCount();
+            long pagesWritten = storage.getPagesWritten();
+            for (int i = 0; i < 100; i++) {
+                pagedManager.updateIssue(1_000, new Task("task999", "task_desc" + i, Status.DONE));
+            }
+            assertEquals(pagesWritten + 100, storage.getPagesWritten());
+            assertEquals(pageCount, storage.getPageCount());
+
+            String longDescription = "описание ".repeat(1_000);
+            pagedManager.updateIssue(5, new Task("task4", longDescription, Status.IN_PROGRESS));
+            pagedManager.updateIssue(6, new Task("task5", "task5_desc" + "x".repeat(300)));
+            pagedManager.removeIssueById(7, "Task");
+            pagedManager.updateIssue(2, new Subtask("subtask2", "subtask2_desc", Status.IN_PROGRESS));
+        }
+
+        PagedStorage reopened = new PagedStorage(file.toString(), PagedStorage.MAX_PAGE_SIZE);
+        assertEquals(PagedStorage.DEFAULT_PAGE_SIZE, reopened.getPageSize());
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(reopened)) {
+            assertEquals(1_999, restored.getIssuesList("Task", Task.class).size());
+            assertEquals("описание ".repeat(1_000), restored.getIssueById(5, "Task").getDescription());
+            assertEquals("task5_desc" + "x".repeat(300), restored.getIssueById(6, "Task").getDescription());
+            assertEquals(Status.DONE, restored.getIssueById(1_000, "Task").getStatus());
+            assertEquals("task_desc99", restored.getIssueById(1_000, "Task").getDescription());
+            Epic epic = restored.getIssueById(epicId, "Epic");
+            assertEquals(2, epic.getSubtasks().size());
+            assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+            restored.updateIssue(5, new Task("task4", "short", Status.DONE));
+            restored.removeIssueById(epicId, "Epic");
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(new PagedStorage(file.toString()))) {
+            assertEquals("short", restored.getIssueById(5, "Task").getDescription());
+            assertTrue(restored.getIssuesList("Epic", Epic.class).isEmpty());
+            assertTrue(restored.getIssuesList("Subtask", Subtask.class).isEmpty());
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    public void pagedStorageLoadsDescriptionsOnDemand() throws Exception {
+        Path file = Files.createTempFile("tasks", ".kpg");
+        try (FileBackedTaskManager pagedManager = new FileBackedTaskManager(new PagedStorage(file.toString()))) {
+            int epicId = pagedManager.addIssue(new Epic("epic", "описание эпика"));
+            pagedManager.addIssue(new Subtask("subtask", "subtask_desc", epicId));
+            for (int t = 0; t < 100; t++) {
+                pagedManager.addIssue(new Task("task" + t, "task_desc" + t + " слово" + t));
+            }
+            pagedManager.addIssue(new Task("long", "описание ".repeat(1_000)));
+        }
+
+        PagedStorage storage = new PagedStorage(file.toString(), PagedStorage.DEFAULT_PAGE_SIZE, true, 2);
+        try (FileBackedTaskManager lazyManager = new FileBackedTaskManager(storage)) {
+            assertEquals(0, storage.getDescriptionReads());
+            assertEquals(1, lazyManager.search("слово42").size());
+
+            Task task = lazyManager.getIssueById(43, "Task");
+            assertEquals("task_desc42 слово42", task.getDescription());
+            assertEquals("task_desc42 слово42", task.getDescription());
+            assertEquals(1, storage.getDescriptionReads());
+            assertEquals("описание ".repeat(1_000), lazyManager.getIssueById(101, "Task").getDescription());
+            assertEquals("описание эпика", lazyManager.getIssueById(1, "Epic").getDescription());
+            assertEquals("task_desc42 слово42", task.getDescription());
+            assertEquals(4, storage.getDescriptionReads());
+
+            lazyManager.updateIssue(43, new Task("task42", "новое описание", Status.DONE));
+            assertEquals("новое описание", task.getDescription());
+            assertEquals(4, storage.getDescriptionReads());
+            assertEquals(1, lazyManager.search("новое").size());
+            assertTrue(lazyManager.search("слово42").isEmpty());
+            lazyManager.removeIssueById(43, "Task");
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(new PagedStorage(file.toString()))) {
+            assertEquals(100, restored.getIssuesList("Task", Task.class).size());
+            assertEquals("subtask_desc", restored.getIssueById(1, "Subtask").getDescription());
+        }
+        Files.delete(file);
+    }
+
+    /**
+     * Страничное хранилище, которое после заданного количества записей страниц перестаёт писать в файл,
+     * как при сбое посреди сброса.
+     */
+    private static class CrashingPagedStorage extends PagedStorage {
+
+        private int writesLeft = Integer.MAX_VALUE;
+
+        CrashingPagedStorage(String fileName) {
+            super(fileName, PagedStorage.MIN_PAGE_SIZE);
+        }
+
+        void crashAfter(int writes) {
+            writesLeft = writes;
+        }
+
+        @Override
+        protected void writePages(int firstPage, ByteBuffer pages) throws IOException {
+            if (writesLeft-- <= 0) {
+                throw new IOException("Сбой при записи страницы " + firstPage);
+            }
+            super.writePages(firstPage, pages);
+        }
+    }
+
+    @Test
+    public void pagedStorageKeepsMovedRecordAfterCrash() throws Exception {
+        Path base = Files.createTempFile("tasks", ".kpg");
+        Path file = Files.createTempFile("tasks", ".kpg");
+        try (FileBackedTaskManager pagedManager = new FileBackedTaskManager(
+                new PagedStorage(base.toString(), PagedStorage.MIN_PAGE_SIZE))) {
+            for (int t = 1; t <= 10; t++) {
+                pagedManager.addIssue(new Task("t" + t, "d" + t));
+            }
+        }
+        String longDescription = "x".repeat(60);
+        //задача 1 не помещается на первой странице и переносится на вторую, освобождая слот на первой;
+        //сбой после любой записи страницы оставляет в файле старую или новую копию
+        for (int writes = 0; writes <= 3; writes++) {
+            Files.copy(base, file, StandardCopyOption.REPLACE_EXISTING);
+            CrashingPagedStorage storage = new CrashingPagedStorage(file.toString());
+            try (FileBackedTaskManager pagedManager = new FileBackedTaskManager(storage)) {
+                storage.crashAfter(writes);
+                pagedManager.updateIssue(1, new Task("t1", longDescription));
+            }
+            try (FileBackedTaskManager restored = new FileBackedTaskManager(
+                    new PagedStorage(file.toString(), PagedStorage.MIN_PAGE_SIZE))) {
+                assertEquals(10, restored.getIssuesList("Task", Task.class).size());
+                String description = restored.getIssueById(1, "Task").getDescription();
+                assertTrue(description.equals("d1") || description.equals(longDescription));
+                if (writes == 3) {
+                    assertEquals(longDescription, description);
+                }
+            }
+        }
+        Files.delete(base);
+        Files.delete(file);
+    }
+
+    @Test
+    public void historySurvivesRestartWithoutWritePerView() throws Exception {
+        Path tasks = Files.createTempFile("tasks", ".journal");
+        Path history = Files.createTempFile("history", ".ring");
+        List<String> expected;
+        PersistentHistoryManager persistentHistory = new PersistentHistoryManager(
+                new InMemoryHistoryManager(), history.toString(), 8, 4, 0);
+        try (FileBackedTaskManager journalManager = new FileBackedTaskManager(
+                new JournalStorage(tasks.toString()), persistentHistory)) {
+            int epicId = journalManager.addIssue(new Epic("epic1", "epic1_desc"));
+            for (int t = 1; t <= 3; t++) {
+                journalManager.addIssue(new Task("task" + t, "task_desc" + t));
+            }
+            assertEquals(1, persistentHistory.getFlushCount());
+            journalManager.getIssueById(1, "Task");
+            journalManager.getIssueById(2, "Task");
+            journalManager.getIssueById(3, "Task");
+            assertEquals(1, persistentHistory.getFlushCount());
+            assertEquals(3, persistentHistory.getPendingCount());
+            journalManager.getIssueById(epicId, "Epic");
+            assertEquals(2, persistentHistory.getFlushCount());
+            journalManager.getIssueById(2, "Task");
+            journalManager.getIssueById(1, "Task");
+            journalManager.getIssueById(3, "Task");
+            journalManager.removeIssueById(2, "Task");
+            assertEquals(3, persistentHistory.getPendingCount());
+            expected = new ArrayList<>(journalManager.getHistory().keySet());
+        }
+        assertEquals(List.of("1_epic", "1_task", "3_task"), expected);
+        assertEquals(32 + 8 * 8, Files.size(history));
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(new JournalStorage(tasks.toString()),
+                new PersistentHistoryManager(new InMemoryHistoryManager(), history.toString()))) {
+            assertEquals(expected, new ArrayList<>(restored.getHistory().keySet()));
+        }
+        Files.delete(tasks);
+        Files.delete(history);
+    }
+
+    @Test
+    public void batchOperationsPersistOnceAndKeepEpicStatus() throws Exception {
+        Path journal = Files.createTempFile("tasks", ".journal");
+        int epicId;
+        List<Integer> subtaskIds;
+        try (FileBackedTaskManager journalManager = new FileBackedTaskManager(new JournalStorage(journal.toString()))) {
+            epicId = journalManager.addIssue(new Epic("epic1", "epic1_desc"));
+            List<Subtask> subtasks = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                subtasks.add(new Subtask("subtask" + i, "subtask_desc" + i, epicId));
+            }
+            subtaskIds = journalManager.addIssues(subtasks);
+            assertEquals(1_000, subtaskIds.size());
+            assertEquals(1_000, journalManager.<Epic>getIssueById(epicId, "Epic").getSubtasks().size());
+
+            Map<Integer, Subtask> done = new LinkedHashMap<>();
+            for (int i = 0; i < 1_000; i++) {
+                done.put(subtaskIds.get(i), new Subtask("subtask" + i, "done", Status.DONE));
+            }
+            assertEquals(1_000, journalManager.updateIssues(done).size());
+            assertEquals(Status.DONE, journalManager.getIssueById(epicId, "Epic").getStatus());
+
+            journalManager.updateIssues(Map.of(subtaskIds.get(0), new Subtask("subtask0", "again", Status.IN_PROGRESS)));
+            journalManager.removeIssues("Subtask", List.of(subtaskIds.get(0), subtaskIds.get(0), subtaskIds.get(1)));
+            assertEquals(Status.DONE, journalManager.getIssueById(epicId, "Epic").getStatus());
+
+            List<Task> invalid = List.of(new Task("task1", "task1_desc"), new Subtask("orphan", "orphan_desc", 99));
+            assertThrows(IllegalArgumentException.class, () -> journalManager.addIssues(invalid));
+            assertThrows(IllegalArgumentException.class, () -> journalManager.removeIssues("Subtask", List.of(subtaskIds.get(2), 5_000)));
+            assertTrue(journalManager.getIssuesList("Task", Task.class).isEmpty());
+            assertEquals(998, journalManager.getIssuesList("Subtask", Subtask.class).size());
+        }
+        try (Stream<String> lines = Files.lines(journal)) {
+            assertEquals(5, lines.count());
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(new JournalStorage(journal.toString()))) {
+            Epic epic = restored.getIssueById(epicId, "Epic");
+            assertEquals(998, epic.getSubtasks().size());
+            assertEquals(Status.DONE, epic.getStatus());
+            assertEquals("done", restored.getIssueById(subtaskIds.get(500), "Subtask").getDescription());
+        }
+        Files.delete(journal);
+    }
+
+    @Test
+    public void transactionPersistsOnceAndRollsBackOnFailure() throws Exception {
+        Path journal = Files.createTempFile("tasks", ".journal");
+        int epicId;
+        int subtaskId;
+        try (FileBackedTaskManager journalManager = new FileBackedTaskManager(new JournalStorage(journal.toString()))) {
+            epicId = journalManager.addIssue(new Epic("epic1", "epic1_desc"));
+            int[] ids = new int[2];
+            journalManager.transaction(tx -> {
+                ids[0] = tx.addIssue(new Subtask("subtask1", "subtask1_desc", epicId));
+                ids[1] = tx.addIssue(new Task("task1", "task1_desc"));
+                tx.updateIssue(ids[0], new Subtask("subtask1", "done", Status.DONE));
+                tx.removeIssueById(ids[1], "Task");
+            });
+            subtaskId = ids[0];
+            assertEquals(Status.DONE, journalManager.getIssueById(epicId, "Epic").getStatus());
+            assertEquals(2, Files.readAllLines(journal).size());
+
+            assertThrows(IllegalStateException.class, () -> journalManager.transaction(tx -> {
+                tx.addIssue(new Task("task2", "task2_desc"));
+                tx.updateIssue(epicId, new Epic("epic1_upd", "epic1_desc_upd"));
+                tx.removeIssueById(subtaskId, "Subtask");
+                tx.clearIssuesList("Epic");
+                throw new IllegalStateException("отмена");
+            }));
+            Epic epic = journalManager.getIssueById(epicId, "Epic");
+            assertEquals("epic1", epic.getSummary());
+            assertEquals(Status.DONE, epic.getStatus());
+            assertEquals(1, epic.getSubtasks().size());
+            assertEquals("done", journalManager.getIssueById(subtaskId, "Subtask").getDescription());
+            assertTrue(journalManager.getIssuesList("Task", Task.class).isEmpty());
+            assertEquals(2, Files.readAllLines(journal).size());
+
+            journalManager.transaction(tx -> {
+                tx.addIssue(new Task("task3", "task3_desc"));
+                assertThrows(IllegalArgumentException.class, () -> tx.transaction(inner -> {
+                    inner.addIssue(new Task("task4", "task4_desc"));
+                    inner.removeIssueById(99, "Task");
+                }));
+            });
+            List<Task> tasks = journalManager.getIssuesList("Task", Task.class);
+            assertEquals(1, tasks.size());
+            assertEquals("task3", tasks.get(0).getSummary());
+            assertEquals(2, tasks.get(0).getId());
+            assertEquals(3, Files.readAllLines(journal).size());
+        }
+        Files.writeString(journal, "T 12:C Subtask", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(new JournalStorage(journal.toString()))) {
+            Epic epic = restored.getIssueById(epicId, "Epic");
+            assertEquals(Status.DONE, epic.getStatus());
+            assertEquals(1, epic.getSubtasks().size());
+            assertEquals("done", restored.getIssueById(subtaskId, "Subtask").getDescription());
+            assertEquals(1, restored.getIssuesList("Task", Task.class).size());
+        }
+        assertEquals(3, Files.readAllLines(journal).size());
+        Files.delete(journal);
+    }
+
     private void checkFiles(){
         String fileName = "test/resources/tmp.txt";
         try {
@@ -0,0 +1,142 @@
+package test;
+
+import ru.practikum.http.HttpTaskServer;
+import ru.practikum.manager.ConcurrentTaskManager;
+import ru.practikum.task.Epic;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Нагрузочный тест HTTP API на локальном сервере.
+ * <p>
+ * Параллельные клиенты в виртуальных потоках отправляют запросы вперемешку: чтение задачи по id,
+ * страница списка, подзадачи эпика и обновление задачи. По окончании выводятся p50 и p99 задержки
+ * и количество запросов в секунду.
+ * <p>
+ * Запуск: {@code java test.HttpLoadTest [количество запросов] [количество клиентов]}.
+ */
+public class HttpLoadTest {
+
+    /**
+     * Результат прогона.
+     */
+    public record Result(int requests, int errors, double seconds, long p50Micros, long p99Micros) {
+
+        public double requestsPerSecond() {
+            return requests / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("запросов: %d, ошибок: %d, %.0f запросов/с, p50 %d мкс, p99 %d мкс",
+                    requests, errors, requestsPerSecond(), p50Micros, p99Micros);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        try (HttpTaskServer server = new HttpTaskServer(populatedManager(1_000, 100, 10), 0)) {
+            server.start();
+            URI base = URI.create("http://localhost:" + server.getPort());
+            run(base, requests / 10, clients, 1_000, 100);
+            System.out.println(run(base, requests, clients, 1_000, 100));
+        }
+    }
+
+    /**
+     * Создаёт менеджер с задачами, эпиками и подзадачами для нагрузочного теста.
+     */
+    public static ConcurrentTaskManager populatedManager(int tasks, int epics, int subtasksPerEpic) {
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        for (int i = 0; i < tasks; i++) {
+            manager.addIssue(new Task("task" + i, "task_desc" + i));
+        }
+        for (int i = 0; i < epics; i++) {
+            int epicId = manager.addIssue(new Epic("epic" + i, "epic_desc" + i));
+            for (int j = 0; j < subtasksPerEpic; j++) {
+                manager.addIssue(new Subtask("subtask" + j, "subtask_desc" + j, epicId));
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * Выполняет запросы и измеряет задержку каждого.
+     *
+     * @param base     адрес сервера
+     * @param requests общее количество запросов
+     * @param clients  количество параллельных клиентов
+     * @param tasks    количество задач на сервере (id от 1)
+     * @param epics    количество эпиков на сервере (id от 1)
+     */
+    public static Result run(URI base, int requests, int clients, int tasks, int epics) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long[][] latencies = new long[clients][];
+        int[] errors = new int[clients];
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int worker = c;
+                int count = requests / clients + (c < requests % clients ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(worker);
+                    long[] own = new long[count];
+                    for (int i = 0; i < count; i++) {
+                        HttpRequest request = nextRequest(base, random, tasks, epics);
+                        long sent = System.nanoTime();
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        own[i] = System.nanoTime() - sent;
+                        if (response.statusCode() >= 300) {
+                            errors[worker]++;
+                        }
+                    }
+                    latencies[worker] = own;
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all.length, Arrays.stream(errors).sum(), seconds,
+                percentile(all, 0.50) / 1_000, percentile(all, 0.99) / 1_000);
+    }
+
+    private static HttpRequest nextRequest(URI base, Random random, int tasks, int epics) {
+        int choice = random.nextInt(100);
+        int taskId = 1 + random.nextInt(tasks);
+        if (choice < 70) {
+            return HttpRequest.newBuilder(base.resolve("/tasks/" + taskId)).GET().build();
+        } else if (choice < 80) {
+            return HttpRequest.newBuilder(base.resolve("/tasks?offset=" + random.nextInt(tasks) + "&limit=20")).GET().build();
+        } else if (choice < 90) {
+            return HttpRequest.newBuilder(base.resolve("/epics/" + (1 + random.nextInt(epics)) + "/subtasks")).GET().build();
+        }
+        String body = "{\"summary\": \"task" + taskId + "\", \"description\": \"updated\", \"status\": \"IN_PROGRESS\"}";
+        return HttpRequest.newBuilder(base.resolve("/tasks/" + taskId))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,170 @@
+package test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practikum.http.HttpTaskServer;
+import ru.practikum.manager.ConcurrentTaskManager;
+import ru.practikum.storage.JsonSnapshotFormat;
+import ru.practikum.task.Epic;
+import ru.practikum.task.Status;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Тестирование HttpTaskServer")
+public class HttpTaskServerTest {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private ConcurrentTaskManager manager;
+    private HttpTaskServer server;
+    private URI base;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        manager = new ConcurrentTaskManager();
+        server = new HttpTaskServer(manager, 0);
+        server.start();
+        base = URI.create("http://localhost:" + server.getPort());
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void crudForTasksEpicsAndSubtasks() throws Exception {
+        HttpResponse<String> created = post("/epics", "{\"summary\": \"epic1\", \"description\": \"epic1_desc\"}");
+        assertEquals(201, created.statusCode());
+        Task epic = parse(created.body(), "Epic").get(0);
+        assertEquals("epic1", epic.getSummary());
+
+        created = post("/subtasks", "{\"epicId\": " + epic.getId() + ", \"summary\": \"subtask1\", \"description\": \"д\"}");
+        assertEquals(201, created.statusCode());
+        int subtaskId = parse(created.body(), "Subtask").get(0).getId();
+        assertEquals(201, post("/tasks", "{\"summary\": \"task1\", \"description\": \"task1_desc\"}").statusCode());
+
+        HttpResponse<String> updated = post("/subtasks/" + subtaskId,
+                "{\"summary\": \"subtask1\", \"description\": \"готово\", \"status\": \"DONE\"}");
+        assertEquals(200, updated.statusCode());
+        assertEquals("готово", parse(updated.body(), "Subtask").get(0).getDescription());
+        assertEquals(Status.DONE, parse(get("/epics/" + epic.getId()).body(), "Epic").get(0).getStatus());
+
+        List<Task> subtasks = parse(get("/epics/" + epic.getId() + "/subtasks").body(), "Subtask");
+        assertEquals(1, subtasks.size());
+        assertEquals(subtaskId, subtasks.get(0).getId());
+        assertEquals(1, parse(get("/tasks").body(), "Task").size());
+        assertEquals(0, parse(get("/tasks?offset=1&limit=10").body(), "Task").size());
+        assertTrue(get("/history").body().contains("\"" + epic.getId() + "_epic\""));
+
+        assertEquals(204, send(HttpRequest.newBuilder(base.resolve("/subtasks/" + subtaskId)).DELETE()).statusCode());
+        assertEquals(404, get("/subtasks/" + subtaskId).statusCode());
+        assertEquals(Status.NEW, manager.getIssueById(epic.getId(), "Epic").getStatus());
+        assertEquals(204, send(HttpRequest.newBuilder(base.resolve("/tasks")).DELETE()).statusCode());
+        assertTrue(manager.getIssuesList("Task", Task.class).isEmpty());
+
+        assertEquals(400, get("/tasks/abc").statusCode());
+        assertEquals(400, post("/tasks", "{\"summary\": ").statusCode());
+        assertEquals(404, post("/subtasks", "{\"epicId\": 99, \"summary\": \"s\"}").statusCode());
+        assertEquals(404, get("/tasksx").statusCode());
+        assertEquals(405, send(HttpRequest.newBuilder(base.resolve("/history")).DELETE()).statusCode());
+    }
+
+    @Test
+    public void conditionalGetsFollowIssueAndTypeVersions() throws Exception {
+        int taskId = manager.addIssue(new Task("task1", "task1_desc"));
+        int epicId = manager.addIssue(new Epic("epic1", "epic1_desc"));
+        int subtaskId = manager.addIssue(new Subtask("subtask1", "subtask1_desc", epicId));
+
+        HttpResponse<String> tasks = get("/tasks");
+        String tasksTag = tasks.headers().firstValue("ETag").orElseThrow();
+        assertEquals(304, get("/tasks", tasksTag).statusCode());
+        assertEquals("", get("/tasks", tasksTag).body());
+        assertEquals(304, get("/tasks?offset=0&limit=1", tasksTag).statusCode());
+        String epicTag = get("/epics/" + epicId).headers().firstValue("ETag").orElseThrow();
+        String epicsTag = get("/epics").headers().firstValue("ETag").orElseThrow();
+
+        long taskVersion = manager.getVersion("Task");
+        manager.updateIssue(subtaskId, new Subtask("subtask1", "subtask1_desc", Status.DONE));
+        assertEquals(taskVersion, manager.getVersion("Task"));
+        assertEquals(304, get("/tasks", tasksTag).statusCode());
+        assertEquals(200, get("/epics/" + epicId, epicTag).statusCode());
+        HttpResponse<String> epics = get("/epics", epicsTag);
+        assertEquals(200, epics.statusCode());
+        assertEquals(Status.DONE, parse(epics.body(), "Epic").get(0).getStatus());
+
+        HttpResponse<String> updated = post("/tasks/" + taskId, "{\"summary\": \"task1_upd\", \"description\": \"d\"}");
+        String taskTag = updated.headers().firstValue("ETag").orElseThrow();
+        assertEquals(304, get("/tasks/" + taskId, taskTag).statusCode());
+        assertTrue(manager.getHistory().containsKey(taskId + "_task"));
+        tasks = get("/tasks", tasksTag);
+        assertEquals(200, tasks.statusCode());
+        assertEquals("task1_upd", parse(tasks.body(), "Task").get(0).getSummary());
+        assertEquals(tasks.body(), get("/tasks").body());
+
+        manager.removeIssueById(taskId, "Task");
+        assertEquals("[]", get("/tasks", tasks.headers().firstValue("ETag").orElseThrow()).body());
+    }
+
+    @Test
+    public void loadTestReportsLatencyAndThroughput() throws Exception {
+        server.close();
+        server = new HttpTaskServer(HttpLoadTest.populatedManager(200, 20, 5), 0);
+        server.start();
+        HttpLoadTest.Result result = HttpLoadTest.run(URI.create("http://localhost:" + server.getPort()), 2_000, 16, 200, 20);
+        System.out.println("Нагрузочный тест HTTP API: " + result);
+        assertEquals(2_000, result.requests());
+        assertEquals(0, result.errors());
+        assertTrue(result.p50Micros() <= result.p99Micros());
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return send(HttpRequest.newBuilder(base.resolve(path)).GET());
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws Exception {
+        return send(HttpRequest.newBuilder(base.resolve(path)).header("If-None-Match", ifNoneMatch).GET());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return send(HttpRequest.newBuilder(base.resolve(path)).POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Разбирает задачу или массив задач из ответа.
+     */
+    private static List<Task> parse(String body, String issueType) throws IOException {
+        List<Task> issues = new ArrayList<>();
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    issues.add(JsonSnapshotFormat.readIssue(parser, issueType));
+                }
+            } else {
+                issues.add(JsonSnapshotFormat.readIssue(parser, issueType));
+            }
+        }
+        return issues;
+    }
+}
@@ -8,6 +8,7 @@ import ru.practikum.task.Epic;
 import ru.practikum.task.Subtask;
 import ru.practikum.task.Task;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -81,4 +82,28 @@ public class InMemoryHistoryManagerTest {
         Map<String, T> history = historyManager.getHistory();
         assertEquals(0, history.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public <T extends Task> void testRepeatedViewMovesIssueToEnd() {
+        historyManager.addToHistory(task1);
+        historyManager.addToHistory(epic1);
+        historyManager.addToHistory(subtask1);
+        historyManager.addToHistory(task1);
+
+        Map<String, T> history = historyManager.getHistory();
+        assertEquals(List.of("1_epic", "1_subtask", "1_task"), List.copyOf(history.keySet()));
+    }
+
+    @Test
+    public <T extends Task> void testBoundedHistoryEvictsLeastRecentlyViewed() {
+        HistoryManager boundedHistory = new InMemoryHistoryManager(2);
+        boundedHistory.addToHistory(task1);
+        boundedHistory.addToHistory(epic1);
+        boundedHistory.addToHistory(task1);
+        boundedHistory.addToHistory(subtask1);
+
+        Map<String, T> history = boundedHistory.getHistory();
+        assertEquals(List.of("1_task", "1_subtask"), List.copyOf(history.keySet()));
+        assertEquals(1, boundedHistory.getEvictionCount());
+    }
+}
@@ -0,0 +1,103 @@
+package test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practikum.utils.IntArraySet;
+import ru.practikum.utils.IntObjectHashMap;
+import ru.practikum.utils.LongObjectHashMap;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тестирование примитивных коллекций")
+public class PrimitiveCollectionsTest {
+
+    @Test
+    public void intObjectHashMapKeepsInsertionOrder() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        map.put(5, "five");
+        map.put(1, "one");
+        map.put(3, "three");
+        map.remove(1);
+        map.put(1, "one again");
+        assertEquals(List.of("five", "three", "one again"), new ArrayList<>(map.values()));
+        assertEquals("three", map.get(3));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    public void intObjectHashMapMatchesLinkedHashMapOnRandomOperations() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        Map<Integer, Integer> expected = new LinkedHashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            Integer value = i;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+        for (int key = -1_000; key < 1_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void intArraySetRemovesInConstantTimeWithoutDuplicates() {
+        IntArraySet set = new IntArraySet();
+        for (int i = 1; i <= 20; i++) {
+            assertTrue(set.addInt(i));
+        }
+        assertFalse(set.addInt(5));
+        assertTrue(set.removeInt(5));
+        assertFalse(set.removeInt(5));
+        assertFalse(set.containsInt(5));
+        assertEquals(19, set.size());
+        assertEquals(20, set.getInt(4));
+        for (int i = 1; i <= 20; i++) {
+            assertEquals(i != 5, set.contains(i));
+        }
+    }
+
+    @Test
+    public void intArraySetMatchesHashSetOnRandomOperations() {
+        IntArraySet set = new IntArraySet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertEquals(expected.remove(value), set.removeInt(value));
+            } else {
+                assertEquals(expected.add(value), set.addInt(value));
+            }
+        }
+        assertEquals(expected, new HashSet<>(set));
+        for (int value = 0; value < 500; value++) {
+            assertEquals(expected.contains(value), set.containsInt(value));
+        }
+    }
+
+    @Test
+    public void longObjectHashMapMatchesHashMapOnRandomOperations() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long key = ((long) random.nextInt(3) << 32) | random.nextInt(1_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                Long value = (long) i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+    }
+}
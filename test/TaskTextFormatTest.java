@@ -0,0 +1,108 @@
+package test;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practikum.storage.TaskLineFormat;
+import ru.practikum.storage.TaskTextReader;
+import ru.practikum.storage.TaskTextWriter;
+import ru.practikum.task.Epic;
+import ru.practikum.task.Status;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Тестирование текстового формата задач")
+public class TaskTextFormatTest {
+
+    @Test
+    public void escapedValuesSurviveRoundTrip() throws IOException {
+        Task task = new Task("Отчёт, версия=2", "it's a \\path\\ with 'quotes'\nи перевод строки", Status.DONE);
+        task.setId(7);
+        Subtask subtask = new Subtask("a, b", "x='y'", 3);
+        subtask.setId(4);
+        subtask.setStatus(Status.IN_PROGRESS);
+
+        StringWriter out = new StringWriter();
+        TaskTextWriter writer = new TaskTextWriter(out);
+        writer.write(task);
+        writer.write(subtask);
+        writer.flush();
+        assertEquals(2, out.toString().split("\n").length);
+
+        TaskTextReader reader = new TaskTextReader(new StringReader(out.toString()));
+        assertEquals(task, reader.next());
+        Subtask parsed = (Subtask) reader.next();
+        assertEquals(subtask, parsed);
+        assertEquals(3, parsed.getEpicId());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void plainRecordsMatchToString() {
+        Task task = new Task("task1", "task1_desc");
+        task.setId(1);
+        assertEquals(task.toString(), TaskLineFormat.format(task));
+        Epic epic = new Epic("epic1", "epic1_desc");
+        epic.setId(2);
+        epic.getSubtasks().addInt(5);
+        epic.getSubtasks().addInt(6);
+        assertEquals(epic.toString(), TaskLineFormat.format(epic));
+    }
+
+    @Test
+    public void legacyFileKeepsEpicSubtaskIds() throws IOException {
+        List<Task> issues = new ArrayList<>();
+        try (TaskTextReader reader = new TaskTextReader(new FileReader("test/resources/test_tasks.txt"))) {
+            Task issue;
+            while ((issue = reader.next()) != null) {
+                issues.add(issue);
+            }
+        }
+        assertEquals(8, issues.size());
+        assertEquals(List.of(1, 2), ((Epic) issues.get(0)).getSubtasks());
+        assertEquals(2, ((Subtask) issues.get(4)).getEpicId());
+        assertEquals("task2_desc", issues.get(7).getDescription());
+    }
+
+    @Test
+    public void subtaskWithoutParentIsAssignedToListingEpic() throws IOException {
+        String text = "Epic{subtaskIds=[10, 11], id='3', summary='e', description='d', status=NEW}\n"
+                + "Subtask{id='11', summary='s', description='d', status=DONE}\n";
+        TaskTextReader reader = new TaskTextReader(new StringReader(text));
+        reader.next();
+        assertEquals(3, ((Subtask) reader.next()).getEpicId());
+    }
+
+    @Test
+    public void malformedRecordIsSkipped() throws IOException {
+        String text = "Task{id='x', summary='bad', description='', status=NEW}\n"
+                + "Unknown{id='1'}\n"
+                + "Task{id='2', summary='good', description='', status=NEW}\n";
+        TaskTextReader reader = new TaskTextReader(new StringReader(text));
+        assertThrows(IllegalArgumentException.class, reader::next);
+        assertThrows(IllegalArgumentException.class, reader::next);
+        assertEquals("good", reader.next().getSummary());
+        assertEquals(3, reader.getLineNumber());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void benchmarkParsesSameRecordsWithBothParsers() throws Exception {
+        Path file = Files.createTempFile("tasks", ".txt");
+        TextParserBenchmark.generate(file, 1_000);
+        TextParserBenchmark.Result result = TextParserBenchmark.run(file);
+        System.out.println("Разбор текстового формата: " + result);
+        assertEquals(1_000, result.records());
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,143 @@
+package test;
+
+import ru.practikum.storage.TaskTextReader;
+import ru.practikum.storage.TaskTextWriter;
+import ru.practikum.task.Epic;
+import ru.practikum.task.Status;
+import ru.practikum.task.Subtask;
+import ru.practikum.task.Task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Сравнение скорости разбора текстового файла задач: {@link TaskTextReader} и прежний построчный разбор
+ * конструкторами {@link Task#Task(String)}, {@link Subtask#Subtask(String)} и {@link Epic#Epic(String)}.
+ * <p>
+ * Оба разборщика читают один и тот же сгенерированный файл: эпики с подзадачами и обычные задачи
+ * в формате {@link Task#toString()}, который понимают оба. Сначала выполняется прогревочный проход,
+ * затем замер; выводится количество записей в миллисекунду для каждого разборщика.
+ * <p>
+ * Запуск: {@code java test.TextParserBenchmark [количество записей]}.
+ */
+public class TextParserBenchmark {
+
+    /**
+     * Результат замера: количество разобранных записей и время каждого разборщика.
+     */
+    public record Result(int records, double legacyMillis, double readerMillis) {
+
+        public double legacyRecordsPerMilli() {
+            return records / legacyMillis;
+        }
+
+        public double readerRecordsPerMilli() {
+            return records / readerMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("записей: %d, конструкторы: %.0f мс (%.0f записей/мс), TaskTextReader: %.0f мс "
+                            + "(%.0f записей/мс)", records, legacyMillis, legacyRecordsPerMilli(),
+                    readerMillis, readerRecordsPerMilli());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        Path file = Files.createTempFile("tasks", ".txt");
+        try {
+            generate(file, records);
+            run(file);
+            System.out.println(run(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Записывает файл из указанного количества записей группами по восемь: эпик, три его подзадачи
+     * и четыре задачи.
+     */
+    public static void generate(Path file, int records) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            TaskTextWriter writer = new TaskTextWriter(out);
+            int epicId = 0;
+            int subtaskId = 0;
+            int taskId = 0;
+            for (int i = 0; i < records; i++) {
+                if (i % 8 == 0 && i + 3 < records) {
+                    Epic epic = new Epic("epic" + i, "описание эпика " + i);
+                    epic.setId(++epicId);
+                    for (int s = 0; s < 3; s++) {
+                        epic.getSubtasks().addInt(subtaskId + s + 1);
+                    }
+                    writer.write(epic);
+                    for (int s = 0; s < 3; s++) {
+                        Subtask subtask = new Subtask("subtask" + s, "описание подзадачи " + i, epicId);
+                        subtask.setId(++subtaskId);
+                        subtask.setStatus(Status.values()[s]);
+                        writer.write(subtask);
+                    }
+                    i += 3;
+                } else {
+                    Task task = new Task("task" + i, "описание задачи " + i, Status.values()[i % 3]);
+                    task.setId(++taskId);
+                    writer.write(task);
+                }
+            }
+            writer.flush();
+        }
+    }
+
+    /**
+     * Разбирает файл обоими разборщиками и измеряет время каждого.
+     *
+     * @throws IllegalStateException если разборщики прочитали разное количество записей
+     */
+    public static Result run(Path file) throws IOException {
+        long start = System.nanoTime();
+        int legacy = parseWithConstructors(file);
+        double legacyMillis = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        int reader = parseWithReader(file);
+        double readerMillis = (System.nanoTime() - start) / 1e6;
+        if (legacy != reader) {
+            throw new IllegalStateException("Разборщики прочитали разное количество записей: " + legacy + " и " + reader);
+        }
+        return new Result(reader, legacyMillis, readerMillis);
+    }
+
+    private static int parseWithConstructors(Path file) throws IOException {
+        int count = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                Task issue = switch (line.split("\\{")[0]) {
+                    case "Task" -> new Task(line);
+                    case "Subtask" -> new Subtask(line);
+                    case "Epic" -> new Epic(line);
+                    default -> null;
+                };
+                if (issue != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int parseWithReader(Path file) throws IOException {
+        int count = 0;
+        try (TaskTextReader reader = new TaskTextReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            while (reader.next() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}